@@ -0,0 +1,252 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Live Stage 2 output per document, relayed to {@code GET /alteredDocuments/{id}/stream} subscribers as
+ * server-sent events: {@code delta} (next piece of HTML), then {@code done} or {@code error}. A {@code reset} event
+ * means the HTML streamed so far was discarded (the generation failed and a fallback follows). A subscriber that
+ * joins mid-generation first receives everything buffered so far as one {@code delta}. Streamed HTML still has
+ * image placeholders ({@code src="img_3_0"}); the persisted document is the re-hydrated one.
+ * <p>
+ * The registry is per process, while a queued job may run on any node. Live deltas are only relayed by the node
+ * running Stage 2; subscribers elsewhere are finished from the database by {@link #finishFromDatabase} (the stored
+ * HTML as one {@code delta}, or {@code error}) once that node is done.
+ */
+@Component
+public class AlteredDocStreamRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(AlteredDocStreamRegistry.class);
+
+    private final Map<Long, DocStream> streams = new ConcurrentHashMap<>();
+    private final chatDocRepository documentRepository;
+
+    @Value("${openai.alt.stream.emitter-timeout-ms:300000}")
+    private long emitterTimeoutMs;
+
+    public AlteredDocStreamRegistry(chatDocRepository documentRepository) {
+        this.documentRepository = documentRepository;
+    }
+
+    /** Start buffering for {@code documentId}; keeps subscribers that connected before generation began. */
+    public void begin(Long documentId) {
+        while (!streams.computeIfAbsent(documentId, id -> new DocStream()).begin()) {
+            // raced with the last early subscriber leaving; take the fresh entry
+        }
+    }
+
+    public void append(Long documentId, String delta) {
+        DocStream stream = streams.get(documentId);
+        if (stream != null) {
+            stream.append(delta);
+        }
+    }
+
+    /**
+     * Drop the partial output of a failed generation; subscribers get {@code reset} and stay attached for the
+     * fallback or a retried run.
+     */
+    public void discard(Long documentId) {
+        DocStream stream = streams.get(documentId);
+        if (stream != null) {
+            stream.discard();
+        }
+    }
+
+    /**
+     * End the stream. When nothing was streamed (deterministic fallback, patch mode, cache hit) subscribers get
+     * {@code finalHtml} as a single {@code delta} first.
+     */
+    public void complete(Long documentId, String finalHtml) {
+        DocStream stream = streams.remove(documentId);
+        if (stream != null) {
+            stream.finish(finalHtml);
+        }
+    }
+
+    /**
+     * This process stopped running the document (its job lease went to another node): drop the entry and close
+     * the connections without a terminal event, so clients reconnect instead of treating the document as failed.
+     */
+    public void handOff(Long documentId) {
+        DocStream stream = streams.remove(documentId);
+        if (stream != null) {
+            stream.handOff();
+        }
+    }
+
+    public void fail(Long documentId, String message) {
+        DocStream stream = streams.remove(documentId);
+        if (stream != null) {
+            stream.close("error", message != null ? message : "");
+        }
+    }
+
+    /** True while Stage 2 for {@code documentId} is streaming or awaited by a connected subscriber. */
+    public boolean isActive(Long documentId) {
+        return streams.containsKey(documentId);
+    }
+
+    /**
+     * Subscribe to a generation that is running or about to run. An entry created only by subscribers is dropped
+     * when the last of them goes away, so an id whose pipeline never runs in this process does not linger.
+     */
+    public SseEmitter subscribe(Long documentId) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        DocStream stream;
+        do {
+            stream = streams.computeIfAbsent(documentId, id -> new DocStream());
+        } while (!stream.attach(emitter));
+        DocStream attached = stream;
+        Runnable detach = () -> {
+            if (attached.detach(emitter)) {
+                streams.remove(documentId, attached);
+            }
+        };
+        emitter.onCompletion(detach);
+        emitter.onTimeout(detach);
+        emitter.onError(error -> detach.run());
+        return emitter;
+    }
+
+    /**
+     * Finish subscribers waiting on a document that is not generating here (its job runs on another node) once
+     * the database shows it done or failed.
+     */
+    @Scheduled(fixedDelayString = "${openai.alt.stream.remote-check-ms:5000}")
+    public void finishFromDatabase() {
+        for (Map.Entry<Long, DocStream> entry : streams.entrySet()) {
+            if (entry.getValue().hasBegun()) {
+                continue;
+            }
+            Long documentId = entry.getKey();
+            try {
+                documentRepository.findById(documentId).ifPresent(document -> {
+                    if (document.getAlteredContent() != null) {
+                        complete(documentId, document.getAlteredContent());
+                    } else if ("FAILED".equals(document.getPipelineStatus())) {
+                        fail(documentId, "Document processing failed");
+                    }
+                });
+            } catch (RuntimeException e) {
+                log.warn("Could not check document {} for stream subscribers: {}", documentId, e.getMessage());
+            }
+        }
+    }
+
+    /** One-shot emitter for a document whose Stage 2 already finished. */
+    public static SseEmitter replay(String html) {
+        SseEmitter emitter = new SseEmitter();
+        try {
+            emitter.send(SseEmitter.event().name("delta").data(html != null ? html : ""));
+            emitter.send(SseEmitter.event().name("done").data(""));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    private static class DocStream {
+        private final StringBuilder buffer = new StringBuilder();
+        private final List<SseEmitter> emitters = new ArrayList<>();
+        private boolean begun;
+        private boolean retired; // removed from the map; callers must take a fresh entry
+
+        /** False if this entry was retired and must not be used. */
+        synchronized boolean begin() {
+            if (retired) {
+                return false;
+            }
+            begun = true;
+            buffer.setLength(0);
+            return true;
+        }
+
+        synchronized void append(String delta) {
+            buffer.append(delta);
+            sendAll("delta", delta);
+        }
+
+        synchronized boolean hasBegun() {
+            return begun;
+        }
+
+        /** Generation stopped here; until it begins again the entry counts as awaited only. */
+        synchronized void discard() {
+            begun = false;
+            if (buffer.length() > 0) {
+                buffer.setLength(0);
+                sendAll("reset", "");
+            }
+        }
+
+        /** False if this entry was retired; the emitter was not attached. */
+        synchronized boolean attach(SseEmitter emitter) {
+            if (retired) {
+                return false;
+            }
+            if (buffer.length() == 0 || send(emitter, "delta", buffer.toString())) {
+                emitters.add(emitter);
+            }
+            return true;
+        }
+
+        /** True if this was the last subscriber of a generation that never began; the entry is then retired. */
+        synchronized boolean detach(SseEmitter emitter) {
+            emitters.remove(emitter);
+            if (emitters.isEmpty() && !begun && !retired) {
+                retired = true;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void finish(String finalHtml) {
+            if (buffer.length() == 0 && finalHtml != null) {
+                sendAll("delta", finalHtml);
+            }
+            close("done", "");
+        }
+
+        synchronized void close(String eventName, String data) {
+            sendAll(eventName, data);
+            completeAll();
+        }
+
+        synchronized void handOff() {
+            discard();
+            completeAll();
+        }
+
+        private void completeAll() {
+            List<SseEmitter> open = new ArrayList<>(emitters);
+            emitters.clear();
+            open.forEach(SseEmitter::complete);
+        }
+
+        private void sendAll(String eventName, String data) {
+            emitters.removeIf(emitter -> !send(emitter, eventName, data));
+        }
+
+        private static boolean send(SseEmitter emitter, String eventName, String data) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Reads a Chat Completions response into a {@link ChatCompletionResponse} as the bytes arrive: 2xx bodies go
+ * through Jackson's non-blocking parser buffer by buffer, so the body is never collected into a String and no
+ * client thread blocks on an {@code InputStream}. Other statuses are read as text ({@link
+ * ChatCompletionResponse#getErrorBody()}) for logging.
+ */
+public class ChatCompletionBodyHandler implements HttpResponse.BodyHandler<ChatCompletionResponse> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Override
+    public HttpResponse.BodySubscriber<ChatCompletionResponse> apply(HttpResponse.ResponseInfo responseInfo) {
+        int status = responseInfo.statusCode();
+        if (status < 200 || status >= 300) {
+            return HttpResponse.BodySubscribers.mapping(
+                HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8), ChatCompletionResponse::ofErrorBody);
+        }
+        try {
+            return new StreamingSubscriber(JSON_FACTORY.createNonBlockingByteBufferParser());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class StreamingSubscriber implements HttpResponse.BodySubscriber<ChatCompletionResponse> {
+        private final CompletableFuture<ChatCompletionResponse> body = new CompletableFuture<>();
+        private final JsonParser parser;
+        private final ByteBufferFeeder feeder;
+        private final ChatCompletionResponse.Extractor extractor = new ChatCompletionResponse.Extractor();
+        private Flow.Subscription subscription;
+
+        StreamingSubscriber(JsonParser parser) {
+            this.parser = parser;
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        @Override
+        public CompletionStage<ChatCompletionResponse> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    if (buffer.hasRemaining()) {
+                        feeder.feedInput(buffer);
+                        drain();
+                    }
+                }
+            } catch (IOException e) {
+                subscription.cancel();
+                body.completeExceptionally(e);
+                return;
+            }
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (body.isDone()) {
+                return;
+            }
+            try {
+                feeder.endOfInput();
+                drain();
+                parser.close();
+                body.complete(extractor.result());
+            } catch (IOException e) {
+                body.completeExceptionally(e);
+            }
+        }
+
+        /** Consume every complete token in the fed input. */
+        private void drain() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                extractor.accept(token, parser);
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * The parts of a Chat Completions response (or one streamed chunk) the pipeline uses. Read token by token by
+ * {@link Extractor}, so nothing but these fields is materialised; see {@link ChatCompletionBodyHandler} for
+ * parsing straight off the HTTP response.
+ */
+public class ChatCompletionResponse {
+    private String model;
+    private String content; // choices[0].message.content, or choices[0].delta.content for a chunk
+    private String finishReason;
+    private int promptTokens;
+    private int completionTokens;
+    private String errorMessage; // error.message
+    private String errorBody; // raw body of a non-2xx response
+
+    /** Parse one JSON document, e.g. an SSE {@code data:} payload. */
+    public static ChatCompletionResponse parse(String json, JsonFactory jsonFactory) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            Extractor extractor = new Extractor();
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                extractor.accept(token, parser);
+            }
+            return extractor.result();
+        }
+    }
+
+    /** A non-2xx response, kept as text for logging. */
+    public static ChatCompletionResponse ofErrorBody(String body) {
+        ChatCompletionResponse response = new ChatCompletionResponse();
+        response.errorBody = body;
+        return response;
+    }
+
+    /** Collects the fields above from a token stream, one token at a time (blocking or non-blocking parser). */
+    static final class Extractor {
+        private final ChatCompletionResponse result = new ChatCompletionResponse();
+
+        void accept(JsonToken token, JsonParser parser) throws IOException {
+            if (!token.isScalarValue()) {
+                return;
+            }
+            switch (path(parser.getParsingContext())) {
+                case "model":
+                    result.model = parser.getText();
+                    break;
+                case "choices[0].message.content":
+                case "choices[0].delta.content":
+                    result.content = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                    break;
+                case "choices[0].finish_reason":
+                    result.finishReason = token == JsonToken.VALUE_NULL ? null : parser.getText();
+                    break;
+                case "usage.prompt_tokens":
+                    result.promptTokens = parser.getValueAsInt();
+                    break;
+                case "usage.completion_tokens":
+                    result.completionTokens = parser.getValueAsInt();
+                    break;
+                case "error.message":
+                    result.errorMessage = parser.getText();
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        ChatCompletionResponse result() {
+            return result;
+        }
+
+        /** Dotted path of the current value, e.g. {@code choices[0].message.content}. */
+        private static String path(JsonStreamContext context) {
+            if (context == null || context.inRoot()) {
+                return "";
+            }
+            String parent = path(context.getParent());
+            if (context.inArray()) {
+                return parent + "[" + context.getCurrentIndex() + "]";
+            }
+            return parent.isEmpty() ? context.getCurrentName() : parent + "." + context.getCurrentName();
+        }
+    }
+
+    // Getters
+    public String getModel() { return model; }
+
+    public String getContent() { return content; }
+
+    public String getFinishReason() { return finishReason; }
+
+    public int getPromptTokens() { return promptTokens; }
+
+    public int getCompletionTokens() { return completionTokens; }
+
+    public String getErrorMessage() { return errorMessage; }
+
+    public String getErrorBody() { return errorBody; }
+}
@@ -3,23 +3,13 @@ package com.husky.spring_portfolio.mvc.chatLLM;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDResources;
-import org.apache.pdfbox.pdmodel.graphics.PDXObject;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.pdfbox.cos.COSName;
-
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 /**
@@ -37,6 +27,18 @@ public class FineTuningDataBuilder {
     private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
     private static final int MAX_CONTEXT_LENGTH = 1500;
     private static final int MAX_IMAGE_BYTES = 8 * 1024 * 1024; // 8 MB to stay under 10 MB
+    // Same knobs as the service (pdf.extraction.*), passed as -D system properties when run from the CLI
+    private static final int EXTRACTION_CHUNK_PAGES = Integer.getInteger("pdf.extraction.chunk-pages", 25);
+    private static final ForkJoinPool EXTRACTION_POOL = new ForkJoinPool(
+        Integer.getInteger("pdf.extraction.parallelism", Runtime.getRuntime().availableProcessors()));
+    // Must match openai.vision.* in application.properties so training images look like production ones
+    private static final int VISION_MAX_EDGE = Integer.getInteger("openai.vision.max-edge", 2048);
+    private static final int VISION_MAX_SHORT_EDGE = Integer.getInteger("openai.vision.max-short-edge", 768);
+    private static final float VISION_JPEG_QUALITY = Float.parseFloat(System.getProperty("openai.vision.jpeg-quality", "0.85"));
+    private static final PdfMemoryPolicy MEMORY_POLICY = new PdfMemoryPolicy(
+        Long.getLong("pdf.memory.max-main-bytes", 64L * 1024 * 1024),
+        Long.getLong("pdf.memory.spill-threshold-bytes", 20L * 1024 * 1024),
+        null);
 
     public static void main(String[] args) throws IOException {
         boolean templateOnly = args.length > 0 && "--template-only".equals(args[0]);
@@ -64,8 +66,7 @@ public class FineTuningDataBuilder {
 
         for (Path pdfPath : pdfs) {
             String filename = pdfPath.getFileName().toString();
-            byte[] pdfBytes = Files.readAllBytes(pdfPath);
-            List<ImageWithContext> images = extractImagesWithContext(pdfBytes);
+            List<ImageWithContext> images = extractImagesWithContext(pdfPath);
             for (int i = 0; i < images.size(); i++) {
                 ImageWithContext img = images.get(i);
                 if (templateOnly) {
@@ -78,7 +79,7 @@ public class FineTuningDataBuilder {
                     label.put("decorative", false);
                     allLabels.add(label);
                 } else {
-                    examples.add(new TrainingExample(filename, img.pageNumber, i, img.contextText, img.imageBytesPng, img.imageId));
+                    examples.add(new TrainingExample(filename, img.pageNumber, i, img.contextText, img.dataUrl, img.imageId));
                 }
             }
         }
@@ -121,7 +122,7 @@ public class FineTuningDataBuilder {
 
                 String userPrompt = buildPrompt(ex.imageId, ex.page, ex.contextText);
                 String assistantContent = buildAssistantJson(decorative, alt, longdesc, ex.imageId);
-                Map<String, Object> line = buildOneJsonlLine(userPrompt, ex.imageBytesPng, assistantContent);
+                Map<String, Object> line = buildOneJsonlLine(userPrompt, ex.imageDataUrl, assistantContent);
                 w.println(MAPPER.writeValueAsString(line));
                 written++;
             }
@@ -167,8 +168,7 @@ public class FineTuningDataBuilder {
     }
 
     @SuppressWarnings("unchecked")
-    private static Map<String, Object> buildOneJsonlLine(String userPrompt, byte[] imagePngBytes, String assistantContent) {
-        String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(imagePngBytes);
+    private static Map<String, Object> buildOneJsonlLine(String userPrompt, String dataUrl, String assistantContent) {
         Map<String, Object> userContent1 = Map.of("type", "text", "text", userPrompt);
         Map<String, Object> userContent2 = Map.of("type", "image_url", "image_url", Map.of("url", dataUrl));
         Map<String, Object> userMsg = Map.of(
@@ -179,36 +179,20 @@ public class FineTuningDataBuilder {
         return Map.of("messages", List.of(userMsg, assistantMsg));
     }
 
-    private static List<ImageWithContext> extractImagesWithContext(byte[] pdfBytes) throws IOException {
+    private static List<ImageWithContext> extractImagesWithContext(Path pdfPath) throws IOException {
         List<ImageWithContext> list = new ArrayList<>();
-        try (PDDocument doc = Loader.loadPDF(pdfBytes)) {
-            int pageNum = 0;
-            for (PDPage page : doc.getPages()) {
-                pageNum++;
-                PDFTextStripper stripper = new PDFTextStripper();
-                stripper.setStartPage(pageNum);
-                stripper.setEndPage(pageNum);
-                String pageText = stripper.getText(doc);
-                PDResources resources = page.getResources();
-                int imageIndex = 0;
-                for (COSName name : resources.getXObjectNames()) {
-                    PDXObject xo = resources.getXObject(name);
-                    if (!(xo instanceof PDImageXObject)) continue;
-                    PDImageXObject img = (PDImageXObject) xo;
-                    try {
-                        BufferedImage bi = img.getImage();
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        ImageIO.write(bi, "PNG", baos);
-                        byte[] png = baos.toByteArray();
-                        if (png.length > MAX_IMAGE_BYTES) continue;
-                        String imageId = "img_" + pageNum + "_" + imageIndex;
-                        list.add(new ImageWithContext(pageNum, imageId, pageText, png));
-                        imageIndex++;
-                    } catch (Exception e) {
-                        // skip
-                    }
-                }
+        PdfAnalysis analysis = PdfAnalysis.analyze(pdfPath, EXTRACTION_POOL, EXTRACTION_CHUNK_PAGES, MEMORY_POLICY);
+        for (ImageInfo image : analysis.getImages()) {
+            if (image.getImageBytes() == null) continue;
+            try {
+                // Same downscaling, bytes and MIME type as the production vision request
+                VisionImagePreprocessor.prepare(image, VISION_MAX_EDGE, VISION_MAX_SHORT_EDGE, VISION_JPEG_QUALITY);
+            } catch (Exception e) {
+                // skip
+                continue;
             }
+            if (image.getVisionImageBytes().length > MAX_IMAGE_BYTES) continue;
+            list.add(new ImageWithContext(image.getPageNumber(), image.getImageId(), image.getContextText(), image.toVisionDataUrl()));
         }
         return list;
     }
@@ -217,13 +201,13 @@ public class FineTuningDataBuilder {
         final int pageNumber;
         final String imageId;
         final String contextText;
-        final byte[] imageBytesPng;
+        final String dataUrl;
 
-        ImageWithContext(int pageNumber, String imageId, String contextText, byte[] imageBytesPng) {
+        ImageWithContext(int pageNumber, String imageId, String contextText, String dataUrl) {
             this.pageNumber = pageNumber;
             this.imageId = imageId;
             this.contextText = contextText;
-            this.imageBytesPng = imageBytesPng;
+            this.dataUrl = dataUrl;
         }
     }
 
@@ -232,15 +216,15 @@ public class FineTuningDataBuilder {
         final int page;
         final int imageIndex;
         final String contextText;
-        final byte[] imageBytesPng;
+        final String imageDataUrl;
         final String imageId;
 
-        TrainingExample(String filename, int page, int imageIndex, String contextText, byte[] imageBytesPng, String imageId) {
+        TrainingExample(String filename, int page, int imageIndex, String contextText, String imageDataUrl, String imageId) {
             this.filename = filename;
             this.page = page;
             this.imageIndex = imageIndex;
             this.contextText = contextText;
-            this.imageBytesPng = imageBytesPng;
+            this.imageDataUrl = imageDataUrl;
             this.imageId = imageId;
         }
     }
@@ -0,0 +1,89 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a {@code convertToRawHtml}-shaped document into standalone documents whose prompt size stays under a token
+ * budget. Splits fall only between top-level elements of {@code <body>}; a paragraph keeps the line breaks of the
+ * extracted text, so a block may span several lines. Every chunk repeats the original head and closing tags, so
+ * document-level defects (missing {@code lang}, title) are still visible to each audit.
+ */
+public final class HtmlChunker {
+
+    private static final Pattern TAG = Pattern.compile("<(/?)([A-Za-z][A-Za-z0-9]*)[^>]*?(/?)>");
+    private static final Set<String> VOID_ELEMENTS = Set.of(
+        "area", "base", "br", "col", "embed", "hr", "img", "input", "link", "meta", "source", "track", "wbr");
+
+    private HtmlChunker() {}
+
+    /**
+     * @param maxTokens approximate budget per chunk (see {@link LlmRateLimiter#estimateTextTokens}); 0 or negative,
+     *                  or a document already within budget, returns the document unchanged as a single chunk
+     */
+    public static List<String> chunk(String html, int maxTokens) {
+        if (html == null || maxTokens <= 0 || LlmRateLimiter.estimateTextTokens(html.length()) <= maxTokens) {
+            return List.of(html);
+        }
+        int bodyOpen = html.indexOf("<body>");
+        int bodyClose = html.lastIndexOf("</body>");
+        if (bodyOpen < 0 || bodyClose < bodyOpen) {
+            return List.of(html);
+        }
+        int bodyStart = html.indexOf('\n', bodyOpen) + 1;
+        String head = html.substring(0, bodyStart);
+        String tail = html.substring(bodyClose);
+        int budgetChars = Math.max(1, (maxTokens - LlmRateLimiter.estimateTextTokens(head.length() + tail.length())) * 4);
+
+        List<String> chunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String block : blocks(html.substring(bodyStart, bodyClose))) {
+            // Oversized blocks go out alone rather than being cut mid-element.
+            if (current.length() > 0 && current.length() + block.length() > budgetChars) {
+                chunks.add(head + current + tail);
+                current.setLength(0);
+            }
+            current.append(block);
+        }
+        if (current.length() > 0) {
+            chunks.add(head + current + tail);
+        }
+        return chunks.isEmpty() ? List.of(html) : chunks;
+    }
+
+    /**
+     * Groups body lines into top-level elements: a block ends at the first line break where every element opened
+     * since the block started has been closed. Each returned block keeps its trailing newline.
+     */
+    static List<String> blocks(String body) {
+        List<String> blocks = new ArrayList<>();
+        StringBuilder block = new StringBuilder();
+        int depth = 0;
+        for (String line : body.split("\n")) {
+            if (depth == 0 && line.isBlank()) {
+                continue;
+            }
+            block.append(line).append('\n');
+            Matcher m = TAG.matcher(line);
+            while (m.find()) {
+                if (!m.group(1).isEmpty()) {
+                    depth--;
+                } else if (m.group(3).isEmpty() && !VOID_ELEMENTS.contains(m.group(2).toLowerCase())) {
+                    depth++;
+                }
+            }
+            if (depth <= 0) {
+                blocks.add(block.toString());
+                block.setLength(0);
+                depth = 0;
+            }
+        }
+        if (block.length() > 0) {
+            blocks.add(block.toString());
+        }
+        return blocks;
+    }
+}
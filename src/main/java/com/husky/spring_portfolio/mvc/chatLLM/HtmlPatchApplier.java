@@ -0,0 +1,108 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Applies Stage 2 patch-mode output: a JSON array of {@code {"find": ..., "replace": ...}} edits against the
+ * Stage 1 HTML. Each {@code find} must occur exactly once in the original document and edits may not overlap;
+ * otherwise the whole patch is rejected so the caller can fall back to full regeneration.
+ */
+public final class HtmlPatchApplier {
+
+    /** One edit: replace the single occurrence of {@code find} with {@code replace}. */
+    public static final class Edit {
+        private final String find;
+        private final String replace;
+
+        public Edit(String find, String replace) {
+            this.find = find;
+            this.replace = replace;
+        }
+
+        public String getFind() { return find; }
+        public String getReplace() { return replace; }
+    }
+
+    /** Patch could not be parsed or does not apply cleanly. */
+    public static class PatchException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public PatchException(String message) {
+            super(message);
+        }
+    }
+
+    private HtmlPatchApplier() {}
+
+    /** Accepts a bare array or {@code {"edits": [...]}}; an empty edit list is allowed. */
+    public static List<Edit> parse(String json, ObjectMapper objectMapper) throws PatchException {
+        return parse(json, objectMapper, false);
+    }
+
+    /**
+     * @param requireEdits reject an empty edit list, e.g. when the plan lists issues and an unchanged document
+     *                     would silently pass them through
+     */
+    public static List<Edit> parse(String json, ObjectMapper objectMapper, boolean requireEdits) throws PatchException {
+        JsonNode root;
+        try {
+            root = objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new PatchException("Patch is not valid JSON: " + e.getMessage());
+        }
+        if (root != null && root.isObject()) {
+            root = root.path("edits");
+        }
+        if (root == null || !root.isArray()) {
+            throw new PatchException("Patch is not a JSON array of edits");
+        }
+        List<Edit> edits = new ArrayList<>();
+        for (JsonNode node : root) {
+            JsonNode find = node.get("find");
+            JsonNode replace = node.get("replace");
+            if (find == null || !find.isTextual() || find.asText().isEmpty() || replace == null || !replace.isTextual()) {
+                throw new PatchException("Edit needs non-empty string \"find\" and string \"replace\"");
+            }
+            edits.add(new Edit(find.asText(), replace.asText()));
+        }
+        if (requireEdits && edits.isEmpty()) {
+            throw new PatchException("Patch has no edits");
+        }
+        return edits;
+    }
+
+    /** Apply all edits against {@code html} by original offsets. */
+    public static String apply(String html, List<Edit> edits) throws PatchException {
+        List<int[]> spans = new ArrayList<>(); // {start, end, editIndex}
+        for (int i = 0; i < edits.size(); i++) {
+            String find = edits.get(i).getFind();
+            int at = html.indexOf(find);
+            if (at < 0) {
+                throw new PatchException("Edit " + (i + 1) + " target not found");
+            }
+            if (html.indexOf(find, at + 1) >= 0) {
+                throw new PatchException("Edit " + (i + 1) + " target is not unique");
+            }
+            spans.add(new int[] { at, at + find.length(), i });
+        }
+        spans.sort(Comparator.comparingInt(span -> span[0]));
+
+        StringBuilder out = new StringBuilder(html.length());
+        int cursor = 0;
+        for (int[] span : spans) {
+            if (span[0] < cursor) {
+                throw new PatchException("Edit " + (span[2] + 1) + " overlaps another edit");
+            }
+            out.append(html, cursor, span[0]).append(edits.get(span[2]).getReplace());
+            cursor = span[1];
+        }
+        out.append(html, cursor, html.length());
+        return out.toString();
+    }
+}
@@ -1,6 +1,6 @@
 package com.husky.spring_portfolio.mvc.chatLLM;
 
-import java.util.List;
+import java.util.Base64;
 
 /**
  * Represents an image extracted from a PDF with its context
@@ -8,12 +8,17 @@ import java.util.List;
 public class ImageInfo {
     private int pageNumber;
     private String imageId;
+    private String contentHash; // SHA-256 of the image stream; equal for repeats of the same image
     private byte[] imageBytes;
     private String imageFormat; // "PNG", "JPEG", etc.
     private double x;
     private double y;
-    private double width;
+    private double width; // original pixel size
     private double height;
+    private byte[] visionImageBytes; // downscaled copy sent to the vision model (see VisionImagePreprocessor)
+    private String visionImageFormat;
+    private int sentWidth;
+    private int sentHeight;
     private String contextText; // Nearby text (caption, paragraph before/after)
     private String sectionHeading; // Document section where image appears
 
@@ -38,12 +43,45 @@ public class ImageInfo {
     public String getImageId() { return imageId; }
     public void setImageId(String imageId) { this.imageId = imageId; }
 
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
     public byte[] getImageBytes() { return imageBytes; }
     public void setImageBytes(byte[] imageBytes) { this.imageBytes = imageBytes; }
 
     public String getImageFormat() { return imageFormat; }
     public void setImageFormat(String imageFormat) { this.imageFormat = imageFormat; }
 
+    /** MIME type for {@link #imageFormat}, used in data URLs; PNG when unknown. */
+    public String getMimeType() {
+        return mimeTypeFor(imageFormat);
+    }
+
+    /** {@code data:} URL of {@link #imageBytes} with the real MIME type. */
+    public String toDataUrl() {
+        return "data:" + getMimeType() + ";base64," + Base64.getEncoder().encodeToString(imageBytes);
+    }
+
+    /** {@code data:} URL of the vision copy; the original image when no preprocessing ran. */
+    public String toVisionDataUrl() {
+        if (visionImageBytes == null) {
+            return toDataUrl();
+        }
+        return "data:" + mimeTypeFor(visionImageFormat) + ";base64," + Base64.getEncoder().encodeToString(visionImageBytes);
+    }
+
+    /** MIME type of the bytes {@link #toVisionDataUrl()} encodes. */
+    public String getVisionMimeType() {
+        return visionImageBytes == null ? getMimeType() : mimeTypeFor(visionImageFormat);
+    }
+
+    private static String mimeTypeFor(String format) {
+        if ("JPEG".equalsIgnoreCase(format) || "JPG".equalsIgnoreCase(format)) {
+            return "image/jpeg";
+        }
+        return "image/png";
+    }
+
     public double getX() { return x; }
     public void setX(double x) { this.x = x; }
 
@@ -56,6 +94,18 @@ public class ImageInfo {
     public double getHeight() { return height; }
     public void setHeight(double height) { this.height = height; }
 
+    public byte[] getVisionImageBytes() { return visionImageBytes; }
+    public void setVisionImageBytes(byte[] visionImageBytes) { this.visionImageBytes = visionImageBytes; }
+
+    public String getVisionImageFormat() { return visionImageFormat; }
+    public void setVisionImageFormat(String visionImageFormat) { this.visionImageFormat = visionImageFormat; }
+
+    public int getSentWidth() { return sentWidth; }
+    public void setSentWidth(int sentWidth) { this.sentWidth = sentWidth; }
+
+    public int getSentHeight() { return sentHeight; }
+    public void setSentHeight(int sentHeight) { this.sentHeight = sentHeight; }
+
     public String getContextText() { return contextText; }
     public void setContextText(String contextText) { this.contextText = contextText; }
 
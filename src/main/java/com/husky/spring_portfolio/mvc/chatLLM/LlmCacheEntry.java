@@ -0,0 +1,69 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/** One cached LLM response, addressed by {@link LlmResponseCache#key}. */
+@Entity
+@Table(name = "llm_response_cache", indexes = {
+    @Index(name = "idx_llm_cache_last_accessed", columnList = "lastAccessedAt")
+})
+public class LlmCacheEntry {
+    /** SHA-256 hex of model, prompts, image hashes and request parameters. */
+    @Id
+    @Column(length = 64)
+    private String cacheKey;
+
+    private String model;
+
+    /** Pipeline stage that produced the entry (ALT_TEXT | PLAN | ALTERED_DOC). */
+    @Column(length = 32)
+    private String stage;
+
+    @Column(columnDefinition = "TEXT")
+    private String response;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime lastAccessedAt;
+
+    private long hitCount;
+
+    // Constructors
+    public LlmCacheEntry() {}
+
+    public LlmCacheEntry(String cacheKey, String model, String stage, String response) {
+        this.cacheKey = cacheKey;
+        this.model = model;
+        this.stage = stage;
+        this.response = response;
+        this.createdAt = LocalDateTime.now();
+        this.lastAccessedAt = this.createdAt;
+    }
+
+    // Getters and setters
+    public String getCacheKey() { return cacheKey; }
+    public void setCacheKey(String cacheKey) { this.cacheKey = cacheKey; }
+
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+
+    public String getStage() { return stage; }
+    public void setStage(String stage) { this.stage = stage; }
+
+    public String getResponse() { return response; }
+    public void setResponse(String response) { this.response = response; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getLastAccessedAt() { return lastAccessedAt; }
+    public void setLastAccessedAt(LocalDateTime lastAccessedAt) { this.lastAccessedAt = lastAccessedAt; }
+
+    public long getHitCount() { return hitCount; }
+    public void setHitCount(long hitCount) { this.hitCount = hitCount; }
+}
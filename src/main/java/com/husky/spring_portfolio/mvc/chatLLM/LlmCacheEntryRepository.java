@@ -0,0 +1,28 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import jakarta.transaction.Transactional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+public interface LlmCacheEntryRepository extends JpaRepository<LlmCacheEntry, String> {
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE LlmCacheEntry e SET e.lastAccessedAt = ?2, e.hitCount = e.hitCount + 1 WHERE e.cacheKey = ?1")
+    int touch(String cacheKey, LocalDateTime accessedAt);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LlmCacheEntry e WHERE e.createdAt < ?1")
+    int deleteCreatedBefore(LocalDateTime cutoff);
+
+    /** Least recently used first, for size-based eviction. */
+    @Query("SELECT e.cacheKey FROM LlmCacheEntry e ORDER BY e.lastAccessedAt ASC")
+    List<String> findLeastRecentlyUsedKeys(Pageable page);
+}
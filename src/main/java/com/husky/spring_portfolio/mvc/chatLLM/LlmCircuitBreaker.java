@@ -0,0 +1,202 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One circuit per model ({@code openai.model}, {@code openai.plan.model}, {@code openai.alt.model}). After
+ * {@code openai.circuit.failure-threshold} consecutive failed or slow calls the circuit opens and calls are
+ * refused without touching the network; after {@code openai.circuit.open-ms} a single probe is let through and
+ * its outcome closes or re-opens the circuit. Outcomes of other calls still in flight are ignored until then.
+ */
+@Component
+public class LlmCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Thrown instead of sending while a model's circuit is open. */
+    public static class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CircuitOpenException(String model) {
+            super("Circuit open for " + model + "; skipping LLM call");
+        }
+    }
+
+    /**
+     * Permission for one call, returned by {@link #tryAcquire}. Only the HALF_OPEN probe's own permit can settle
+     * or give back the probe, so outcomes of calls started before the circuit opened cannot.
+     */
+    public static final class Permit {
+        private final String model;
+        private final boolean probe;
+
+        private Permit(String model, boolean probe) {
+            this.model = model;
+            this.probe = probe;
+        }
+
+        public String getModel() { return model; }
+        public boolean isProbe() { return probe; }
+    }
+
+    private final PipelineMetrics pipelineMetrics;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    @Value("${openai.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${openai.circuit.open-ms:30000}")
+    private long openMs;
+
+    public LlmCircuitBreaker(PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    /** Non-reserving check for callers that want to skip a stage up front. */
+    public boolean isCallPermitted(String model) {
+        if (failureThreshold <= 0 || model == null) {
+            return true;
+        }
+        Circuit circuit = circuits.get(model);
+        return circuit == null || circuit.peek(System.nanoTime(), openMs);
+    }
+
+    /**
+     * Take permission for one call, or null if the circuit refuses it. Every permit must be handed to
+     * {@link #onSuccess}, {@link #onFailure} or {@link #release}; in HALF_OPEN only one caller (the probe) gets one.
+     */
+    public Permit tryAcquire(String model) {
+        if (failureThreshold <= 0) {
+            return new Permit(model, false);
+        }
+        Circuit circuit = circuits.computeIfAbsent(model, m -> new Circuit());
+        Permit permit = circuit.tryAcquire(model, System.nanoTime(), openMs);
+        if (permit == null) {
+            pipelineMetrics.increment("llm.circuit.rejected");
+        }
+        return permit;
+    }
+
+    /** Record a completed call; calls slower than {@code slowCallNanos} count as failures. */
+    public void onSuccess(Permit permit, long durationNanos, long slowCallNanos) {
+        if (durationNanos > slowCallNanos) {
+            pipelineMetrics.increment("llm.circuit.slowCalls");
+            onFailure(permit);
+            return;
+        }
+        Circuit circuit = circuits.get(permit.model);
+        if (circuit != null) {
+            transition(permit.model, circuit.recordSuccess(permit));
+        }
+    }
+
+    /**
+     * Give back a permission without judging the provider: the call never reached it (e.g. refused by the rate
+     * limiter), is about to be retried, or was answered with 429 back-pressure.
+     */
+    public void release(Permit permit) {
+        Circuit circuit = circuits.get(permit.model);
+        if (circuit != null) {
+            circuit.release(permit);
+        }
+    }
+
+    public void onFailure(Permit permit) {
+        if (failureThreshold <= 0) {
+            return;
+        }
+        Circuit circuit = circuits.computeIfAbsent(permit.model, m -> new Circuit());
+        transition(permit.model, circuit.recordFailure(permit, System.nanoTime(), failureThreshold));
+    }
+
+    public State stateOf(String model) {
+        Circuit circuit = circuits.get(model);
+        return circuit == null ? State.CLOSED : circuit.state();
+    }
+
+    private void transition(String model, State newState) {
+        if (newState == null) {
+            return;
+        }
+        log.warn("LLM circuit for {} is now {}", model, newState);
+        pipelineMetrics.increment("llm.circuit." + newState.name().toLowerCase());
+        pipelineMetrics.setGauge("llm.circuit.state." + model, newState.name());
+    }
+
+    private static class Circuit {
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        /** Permit of the HALF_OPEN probe in flight, if any. */
+        private Permit probe;
+
+        synchronized boolean peek(long now, long openMs) {
+            return state == State.CLOSED
+                || (state == State.OPEN && now - openedAt >= TimeUnit.MILLISECONDS.toNanos(openMs))
+                || (state == State.HALF_OPEN && probe == null);
+        }
+
+        synchronized Permit tryAcquire(String model, long now, long openMs) {
+            if (state == State.OPEN && now - openedAt >= TimeUnit.MILLISECONDS.toNanos(openMs)) {
+                state = State.HALF_OPEN;
+                probe = null;
+            }
+            if (state == State.CLOSED) {
+                return new Permit(model, false);
+            }
+            if (state == State.HALF_OPEN && probe == null) {
+                probe = new Permit(model, true);
+                return probe;
+            }
+            return null;
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized void release(Permit permit) {
+            if (permit == probe) {
+                probe = null;
+            }
+        }
+
+        /** @return the new state if it changed, else null */
+        synchronized State recordSuccess(Permit permit) {
+            if (state != State.CLOSED && permit != probe) {
+                return null; // a call that started before the circuit opened; wait for the probe
+            }
+            consecutiveFailures = 0;
+            if (state == State.HALF_OPEN) {
+                probe = null;
+                state = State.CLOSED;
+                return state;
+            }
+            return null;
+        }
+
+        synchronized State recordFailure(Permit permit, long now, int threshold) {
+            if (state != State.CLOSED && permit != probe) {
+                return null; // already open; only the probe's outcome counts now
+            }
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= threshold) {
+                probe = null;
+                state = State.OPEN;
+                openedAt = now;
+                return state;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+/**
+ * Provider-neutral access to a Chat Completions-compatible endpoint. {@link LlmTransport} is the production
+ * implementation; point {@code openai.base-url} at {@link MockLlmServer} to run the pipeline offline.
+ */
+public interface LlmClient {
+
+    /** Pipeline stage of a call; selects its request timeout. */
+    enum Stage { ALT_TEXT, PLAN, ALTERED_DOC }
+
+    /**
+     * A request body written straight to the connection by a streaming generator, so large payloads (base64
+     * images) never exist as one string. {@link #writeTo} runs once per attempt and must be repeatable.
+     */
+    @FunctionalInterface
+    interface JsonBody {
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+
+    /** True when credentials are configured. */
+    boolean isConfigured();
+
+    /**
+     * POST a Chat Completions body. The future completes with the final response (any status; 2xx bodies parsed
+     * by {@link ChatCompletionBodyHandler}) or exceptionally with an {@link IOException} cause.
+     *
+     * @param estimatedTokens prompt plus {@code max_tokens} estimate, used for client-side pacing
+     */
+    CompletableFuture<HttpResponse<ChatCompletionResponse>> postChatCompletionAsync(Stage stage, String model, int estimatedTokens,
+                                                                   String jsonBody);
+
+    /** {@link #postChatCompletionAsync(Stage, String, int, String)} with a streamed body. */
+    CompletableFuture<HttpResponse<ChatCompletionResponse>> postChatCompletionAsync(Stage stage, String model,
+                                                                                   int estimatedTokens, JsonBody body);
+
+    /** POST a {@code "stream": true} body; the response body is the raw server-sent-event lines. */
+    CompletableFuture<HttpResponse<Stream<String>>> postChatCompletionStreamAsync(Stage stage, String model,
+                                                                                 int estimatedTokens, String jsonBody);
+
+    /** Blocking form of {@link #postChatCompletionAsync}. */
+    default HttpResponse<ChatCompletionResponse> postChatCompletion(Stage stage, String model, int estimatedTokens,
+                                                                    String jsonBody) throws IOException {
+        try {
+            return postChatCompletionAsync(stage, model, estimatedTokens, jsonBody).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("LLM request interrupted", e);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        }
+    }
+
+    /** Turn a future's failure cause into the {@link IOException} callers expect. */
+    static IOException unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("LLM request failed: " + cause.getMessage(), cause);
+    }
+}
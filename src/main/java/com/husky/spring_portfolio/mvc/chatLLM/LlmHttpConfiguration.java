@@ -0,0 +1,61 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+/**
+ * The single HTTP client used for every LLM call (see {@link LlmTransport}). HTTP/2 lets concurrent
+ * vision and completion requests share one connection to the provider; the dedicated executor keeps
+ * response handling off Tomcat and {@code ForkJoinPool.commonPool()} threads.
+ */
+@Configuration
+public class LlmHttpConfiguration {
+
+    @Bean(name = "llmHttpExecutor")
+    public ThreadPoolTaskExecutor llmHttpExecutor(@Value("${openai.http.threads:8}") int threads) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setThreadNamePrefix("llm-http-");
+        ex.setDaemon(true);
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Threads that generate streamed request bodies ({@link LlmClient.JsonBody}) into the upload pipe. Kept
+     * apart from {@code llmHttpExecutor} because a writer blocks until the client has read what it wrote.
+     * Every in-flight vision upload holds one writer, so the pool has at least {@code openai.alt-text.concurrency}
+     * threads; there is no queue, and an upload that finds no free writer fails (and is retried) instead of
+     * waiting behind the others until its deadline.
+     */
+    @Bean(name = "llmBodyWriterExecutor")
+    public ThreadPoolTaskExecutor llmBodyWriterExecutor(@Value("${openai.http.body-writer-threads:8}") int threads,
+                                                        @Value("${openai.alt-text.concurrency:4}") int altTextConcurrency) {
+        int writers = Math.max(threads, altTextConcurrency);
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(writers);
+        ex.setMaxPoolSize(writers);
+        ex.setQueueCapacity(0);
+        ex.setThreadNamePrefix("llm-body-");
+        ex.setDaemon(true);
+        ex.initialize();
+        return ex;
+    }
+
+    @Bean(name = "llmHttpClient")
+    public HttpClient llmHttpClient(@Qualifier("llmHttpExecutor") ThreadPoolTaskExecutor llmHttpExecutor,
+                                    @Value("${openai.timeout.connect-ms:10000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+            .executor(llmHttpExecutor)
+            .build();
+    }
+}
@@ -0,0 +1,148 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side requests-per-minute and tokens-per-minute budget, one pair of token buckets per model, shared by
+ * every pipeline thread. Callers reserve capacity up front and are told how long to wait before sending; the
+ * wait is taken as a scheduled delay rather than an HTTP 429 from the provider.
+ */
+@Component
+public class LlmRateLimiter {
+
+    /** Thrown when the queue for a model is longer than {@code openai.ratelimit.max-wait-ms}. */
+    public static class RateLimitExceededException extends java.io.IOException {
+        private static final long serialVersionUID = 1L;
+
+        public RateLimitExceededException(String model, long waitMs) {
+            super("Rate limit wait for " + model + " would be " + waitMs + " ms");
+        }
+    }
+
+    private final PipelineMetrics pipelineMetrics;
+    private final Map<String, ModelBudget> budgets = new ConcurrentHashMap<>();
+
+    @Value("${openai.ratelimit.rpm:500}")
+    private int requestsPerMinute;
+
+    @Value("${openai.ratelimit.tpm:30000}")
+    private int tokensPerMinute;
+
+    @Value("${openai.ratelimit.max-wait-ms:30000}")
+    private long maxWaitMs;
+
+    public LlmRateLimiter(PipelineMetrics pipelineMetrics) {
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    /**
+     * Reserve one request and {@code estimatedTokens} for {@code model}.
+     *
+     * @return milliseconds to wait before sending (0 = send now)
+     * @throws RateLimitExceededException if the wait would exceed the configured maximum; nothing is reserved
+     */
+    public long reserve(String model, int estimatedTokens) throws RateLimitExceededException {
+        if (requestsPerMinute <= 0 && tokensPerMinute <= 0) {
+            return 0;
+        }
+        ModelBudget budget = budgets.computeIfAbsent(model, m -> new ModelBudget(requestsPerMinute, tokensPerMinute));
+        long waitMs = budget.reserve(estimatedTokens, maxWaitMs);
+        if (waitMs < 0) {
+            pipelineMetrics.increment("llm.ratelimit.rejected");
+            throw new RateLimitExceededException(model, budget.lastWaitMs);
+        }
+        pipelineMetrics.setGauge("llm.ratelimit.waitMs." + model, waitMs);
+        if (waitMs > 0) {
+            pipelineMetrics.increment("llm.ratelimit.delayed");
+        }
+        return waitMs;
+    }
+
+    /** Rough prompt size: ~4 characters per token for English text. */
+    public static int estimateTextTokens(int characters) {
+        return characters / 4 + 1;
+    }
+
+    /** Vision cost for a high-detail image: 85 base + 170 per 512px tile. */
+    public static int estimateImageTokens(int width, int height) {
+        int tiles = (int) (Math.ceil(width / 512.0) * Math.ceil(height / 512.0));
+        return 85 + 170 * Math.max(1, tiles);
+    }
+
+    private static class ModelBudget {
+        private final Bucket requests;
+        private final Bucket tokens;
+        private long lastWaitMs;
+
+        ModelBudget(int requestsPerMinute, int tokensPerMinute) {
+            this.requests = requestsPerMinute > 0 ? new Bucket(requestsPerMinute) : null;
+            this.tokens = tokensPerMinute > 0 ? new Bucket(tokensPerMinute) : null;
+        }
+
+        /** Wait in ms for both buckets, or -1 if over {@code maxWaitMs} (then nothing is taken). */
+        synchronized long reserve(int estimatedTokens, long maxWaitMs) {
+            long now = System.nanoTime();
+            long wait = 0;
+            if (requests != null) {
+                requests.refill(now);
+                wait = Math.max(wait, requests.waitMsFor(1));
+            }
+            if (tokens != null) {
+                tokens.refill(now);
+                wait = Math.max(wait, tokens.waitMsFor(Math.min(estimatedTokens, tokens.capacity)));
+            }
+            lastWaitMs = wait;
+            if (wait > maxWaitMs) {
+                return -1;
+            }
+            if (requests != null) {
+                requests.take(1);
+            }
+            if (tokens != null) {
+                tokens.take(Math.min(estimatedTokens, tokens.capacity));
+            }
+            return wait;
+        }
+    }
+
+    /** Refills continuously at capacity per minute; may go negative so later callers queue behind earlier ones. */
+    static class Bucket {
+        final double capacity;
+        final double perNano;
+        double available;
+        long lastRefill;
+
+        Bucket(int perMinute) {
+            this(perMinute, System.nanoTime());
+        }
+
+        /** Full bucket as of {@code now} ({@link System#nanoTime()} scale). */
+        Bucket(int perMinute, long now) {
+            this.capacity = perMinute;
+            this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.available = perMinute;
+            this.lastRefill = now;
+        }
+
+        void refill(long now) {
+            available = Math.min(capacity, available + (now - lastRefill) * perNano);
+            lastRefill = now;
+        }
+
+        long waitMsFor(double amount) {
+            if (available >= amount) {
+                return 0;
+            }
+            return (long) Math.ceil((amount - available) / perNano / TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        void take(double amount) {
+            available -= amount;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Content-addressed store for LLM responses in the application database ({@code llm_response_cache}), so a
+ * re-upload or near-identical revision reuses earlier vision and Stage 1 / Stage 2 answers. Entries expire after
+ * {@code openai.cache.ttl-hours}; beyond {@code openai.cache.max-entries} the least recently used are evicted.
+ * Failures here are logged and treated as misses; the cache never fails a pipeline run.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    /** Puts between TTL / size sweeps. */
+    private static final int EVICTION_INTERVAL = 32;
+
+    private final LlmCacheEntryRepository repository;
+    private final PipelineMetrics pipelineMetrics;
+    private final AtomicInteger putsSinceEviction = new AtomicInteger(EVICTION_INTERVAL);
+
+    @Value("${openai.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${openai.cache.ttl-hours:720}")
+    private long ttlHours;
+
+    @Value("${openai.cache.max-entries:5000}")
+    private int maxEntries;
+
+    public LlmResponseCache(LlmCacheEntryRepository repository, PipelineMetrics pipelineMetrics) {
+        this.repository = repository;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    /**
+     * Cache key: SHA-256 over the model, system prompt, SHA-256 of the user prompt, image content hashes
+     * (in request order) and any parameters that change the answer (max_tokens, temperature, image sizing).
+     */
+    public static String key(String model, String systemPrompt, String userPrompt, List<String> imageHashes,
+                             String params) {
+        MessageDigest digest = sha256();
+        String promptHash = HexFormat.of().formatHex(sha256().digest(
+            (userPrompt != null ? userPrompt : "").getBytes(StandardCharsets.UTF_8)));
+        StringBuilder material = new StringBuilder()
+            .append(model).append('\n')
+            .append(systemPrompt != null ? systemPrompt : "").append('\n')
+            .append(promptHash).append('\n');
+        for (String imageHash : imageHashes) {
+            material.append(imageHash).append(',');
+        }
+        material.append('\n').append(params != null ? params : "");
+        return HexFormat.of().formatHex(digest.digest(material.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public Optional<String> get(String key, LlmClient.Stage stage) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            Optional<LlmCacheEntry> entry = repository.findById(key);
+            if (entry.isPresent() && isExpired(entry.get())) {
+                repository.deleteById(key);
+                entry = Optional.empty();
+            }
+            if (entry.isEmpty()) {
+                pipelineMetrics.increment("llm.cache.miss." + stage);
+                return Optional.empty();
+            }
+            repository.touch(key, LocalDateTime.now());
+            pipelineMetrics.increment("llm.cache.hit." + stage);
+            return Optional.of(entry.get().getResponse());
+        } catch (RuntimeException e) {
+            log.warn("LLM cache lookup failed: {}", e.getMessage());
+            pipelineMetrics.increment("llm.cache.miss." + stage);
+            return Optional.empty();
+        }
+    }
+
+    public void put(String key, LlmClient.Stage stage, String model, String response) {
+        if (!enabled || response == null) {
+            return;
+        }
+        try {
+            repository.save(new LlmCacheEntry(key, model, stage.name(), response));
+            if (putsSinceEviction.incrementAndGet() >= EVICTION_INTERVAL) {
+                putsSinceEviction.set(0);
+                evict();
+            }
+        } catch (RuntimeException e) {
+            log.warn("LLM cache write failed: {}", e.getMessage());
+        }
+    }
+
+    private void evict() {
+        int expired = ttlHours > 0 ? repository.deleteCreatedBefore(LocalDateTime.now().minusHours(ttlHours)) : 0;
+        int overflow = 0;
+        long excess = maxEntries > 0 ? repository.count() - maxEntries : 0;
+        if (excess > 0) {
+            List<String> keys = repository.findLeastRecentlyUsedKeys(PageRequest.of(0, (int) excess));
+            repository.deleteAllById(keys);
+            overflow = keys.size();
+        }
+        pipelineMetrics.add("llm.cache.evicted", expired + overflow);
+    }
+
+    private boolean isExpired(LlmCacheEntry entry) {
+        return ttlHours > 0 && entry.getCreatedAt() != null
+            && entry.getCreatedAt().isBefore(LocalDateTime.now().minusHours(ttlHours));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
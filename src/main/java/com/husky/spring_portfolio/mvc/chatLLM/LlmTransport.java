@@ -0,0 +1,362 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * The {@link LlmClient} for OpenAI-compatible Chat Completions at {@code openai.base-url}: one shared HTTP/2
+ * client ({@link LlmHttpConfiguration}) and a per-stage request deadline, so a stalled upstream fails the
+ * call instead of holding a pipeline thread forever. Requests are paced by {@link LlmRateLimiter} before
+ * they are sent and guarded by a per-model {@link LlmCircuitBreaker}; transient failures (429, 5xx gateway
+ * errors, I/O and timeouts) are retried with jittered exponential backoff or the server's {@code Retry-After},
+ * within a total time budget. {@link LlmClient.JsonBody} requests are generated on a body-writer thread into a
+ * pipe the client uploads from, so a multi-megabyte image body is never held in memory as a whole.
+ */
+@Component
+public class LlmTransport implements LlmClient {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmTransport.class);
+
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 500, 502, 503, 504);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /** Pipe buffer between a body writer and the upload; the writer blocks when it is full. */
+    private static final int BODY_PIPE_BYTES = 64 * 1024;
+
+    /** Supplies one attempt's request body; streams it opens are registered in {@code opened} for cleanup. */
+    private interface BodySource {
+        HttpRequest.BodyPublisher publisher(List<Closeable> opened);
+    }
+
+    /** One attempt of a call; {@code sent} is set once it holds a breaker {@code permit} and reached the client. */
+    private static final class Attempt {
+        volatile LlmCircuitBreaker.Permit permit;
+        volatile boolean sent;
+        volatile long sentAt;
+    }
+
+    private final HttpClient httpClient;
+    private final Executor httpExecutor;
+    private final Executor bodyWriterExecutor;
+    private final LlmRateLimiter rateLimiter;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${openai.api.key:}")
+    private String apiKey;
+
+    /** Chat Completions base URL ({@code /chat/completions} is appended); override for proxies or the mock. */
+    @Value("${openai.base-url:https://api.openai.com/v1}")
+    private String baseUrl;
+
+    @Value("${openai.timeout.alt-text-ms:60000}")
+    private long altTextTimeoutMs;
+
+    @Value("${openai.timeout.plan-ms:120000}")
+    private long planTimeoutMs;
+
+    @Value("${openai.timeout.altered-doc-ms:180000}")
+    private long alteredDocTimeoutMs;
+
+    @Value("${openai.circuit.slow-call-ratio:0.8}")
+    private double slowCallRatio;
+
+    @Value("${openai.retry.max-attempts:4}")
+    private int retryMaxAttempts;
+
+    @Value("${openai.retry.base-delay-ms:500}")
+    private long retryBaseDelayMs;
+
+    @Value("${openai.retry.max-delay-ms:20000}")
+    private long retryMaxDelayMs;
+
+    @Value("${openai.retry.max-elapsed-ms:90000}")
+    private long retryMaxElapsedMs;
+
+    public LlmTransport(@Qualifier("llmHttpClient") HttpClient httpClient,
+                        @Qualifier("llmHttpExecutor") Executor httpExecutor,
+                        @Qualifier("llmBodyWriterExecutor") Executor bodyWriterExecutor,
+                        LlmRateLimiter rateLimiter,
+                        LlmCircuitBreaker circuitBreaker,
+                        PipelineMetrics pipelineMetrics) {
+        this.httpClient = httpClient;
+        this.httpExecutor = httpExecutor;
+        this.bodyWriterExecutor = bodyWriterExecutor;
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    /** True when an API key is configured. */
+    @Override
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+
+    /**
+     * POST a Chat Completions body, retrying transient failures. The future completes with the last
+     * response (any status) or exceptionally on connect/request timeout or I/O failure once retries are
+     * exhausted, or when the rate-limit queue for {@code model} is longer than
+     * {@code openai.ratelimit.max-wait-ms}.
+     *
+     * @param estimatedTokens prompt plus {@code max_tokens} estimate, charged against the model's tokens/min
+     */
+    @Override
+    public CompletableFuture<HttpResponse<ChatCompletionResponse>> postChatCompletionAsync(Stage stage, String model,
+                                                                                          int estimatedTokens,
+                                                                                          String jsonBody) {
+        return sendWithRetry(stage, model, estimatedTokens, stringBody(jsonBody),
+            new ChatCompletionBodyHandler(), 1, System.nanoTime());
+    }
+
+    /** Same as the string form, with the body generated into the upload while it is sent. */
+    @Override
+    public CompletableFuture<HttpResponse<ChatCompletionResponse>> postChatCompletionAsync(Stage stage, String model,
+                                                                                          int estimatedTokens,
+                                                                                          JsonBody body) {
+        return sendWithRetry(stage, model, estimatedTokens, streamedBody(body),
+            new ChatCompletionBodyHandler(), 1, System.nanoTime());
+    }
+
+    /**
+     * POST a {@code "stream": true} body; the future completes once response headers arrive and the body is
+     * the raw server-sent-event lines. Retries and the stage deadline cover only the wait for headers. The
+     * caller must close the stream.
+     */
+    @Override
+    public CompletableFuture<HttpResponse<Stream<String>>> postChatCompletionStreamAsync(Stage stage, String model,
+                                                                                        int estimatedTokens,
+                                                                                        String jsonBody) {
+        return sendWithRetry(stage, model, estimatedTokens, stringBody(jsonBody),
+            HttpResponse.BodyHandlers.ofLines(), 1, System.nanoTime());
+    }
+
+    private static BodySource stringBody(String jsonBody) {
+        return opened -> HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8);
+    }
+
+    /** A fresh pipe (and writer) each time the client subscribes, so retries re-generate the body. */
+    private BodySource streamedBody(JsonBody body) {
+        return opened -> HttpRequest.BodyPublishers.ofInputStream(() -> {
+            InputStream in = pipe(body);
+            opened.add(in);
+            return in;
+        });
+    }
+
+    /**
+     * Run {@code body} on a body-writer thread into a pipe and return its read end. If generation fails the read
+     * end is closed, so the upload fails with an I/O error instead of sending truncated JSON.
+     */
+    private InputStream pipe(JsonBody body) {
+        PipedInputStream in = new PipedInputStream(BODY_PIPE_BYTES);
+        PipedOutputStream out;
+        try {
+            out = new PipedOutputStream(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            bodyWriterExecutor.execute(() -> {
+                try {
+                    JsonGenerator generator = JSON_FACTORY.createGenerator(out);
+                    body.writeTo(generator);
+                    generator.close();
+                } catch (IOException | RuntimeException e) {
+                    log.debug("LLM request body not fully written: {}", e.getMessage());
+                    closeQuietly(in);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            closeQuietly(in);
+            throw new UncheckedIOException(new IOException("No LLM body writer free", e));
+        }
+        return in;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+            // nothing left to release
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendWithRetry(Stage stage, String model, int estimatedTokens,
+                                                                BodySource body, HttpResponse.BodyHandler<T> handler,
+                                                                int attempt, long startNanos) {
+        Attempt current = new Attempt();
+        return sendOnce(stage, model, estimatedTokens, body, handler, current)
+            .handle((response, error) -> {
+                long delayMs = retryDelayMs(response, error, attempt);
+                long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+                if (delayMs < 0 || attempt >= retryMaxAttempts || elapsedMs + delayMs > retryMaxElapsedMs) {
+                    recordOutcome(stage, current, response, error);
+                    return error != null
+                        ? CompletableFuture.<HttpResponse<T>>failedFuture(error)
+                        : CompletableFuture.completedFuture(response);
+                }
+                if (current.sent) {
+                    circuitBreaker.release(current.permit); // only the call's final attempt is judged by the breaker
+                }
+                if (response != null && response.body() instanceof Stream) {
+                    ((Stream<?>) response.body()).close();
+                }
+                log.warn("OpenAI {} call to {} failed ({}); retry {} in {} ms", stage, model,
+                    error != null ? LlmClient.unwrap(error).getMessage() : "HTTP " + response.statusCode(), attempt, delayMs);
+                pipelineMetrics.increment("llm.retry.attempts");
+                Executor delayed = CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS, httpExecutor);
+                return CompletableFuture.runAsync(() -> { }, delayed)
+                    .thenCompose(ignored -> sendWithRetry(stage, model, estimatedTokens, body, handler,
+                        attempt + 1, startNanos));
+            })
+            .thenCompose(future -> future);
+    }
+
+    /**
+     * Delay before the next attempt, or -1 if the outcome is final. Honors {@code Retry-After} (seconds or
+     * HTTP-date); otherwise full-jitter exponential backoff.
+     */
+    private long retryDelayMs(HttpResponse<?> response, Throwable error, int attempt) {
+        if (error != null) {
+            IOException cause = LlmClient.unwrap(error);
+            if (cause instanceof LlmRateLimiter.RateLimitExceededException
+                || cause instanceof LlmCircuitBreaker.CircuitOpenException) {
+                return -1;
+            }
+        } else if (!RETRYABLE_STATUS.contains(response.statusCode())) {
+            return -1;
+        } else {
+            long retryAfter = response.headers().firstValue("Retry-After").map(LlmTransport::parseRetryAfterMs).orElse(-1L);
+            if (retryAfter >= 0) {
+                return retryAfter;
+            }
+        }
+        long ceiling = Math.min(retryMaxDelayMs, retryBaseDelayMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    static long parseRetryAfterMs(String value) {
+        String v = value.trim();
+        try {
+            return Math.max(0, (long) (Double.parseDouble(v) * 1000));
+        } catch (NumberFormatException notSeconds) {
+            try {
+                ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(at.getZone()), at).toMillis());
+            } catch (DateTimeParseException notDate) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Report a call's final attempt to the breaker, once per call. A 429 is back-pressure, not an outage: it
+     * gives the permission back without counting as a failure.
+     */
+    private void recordOutcome(Stage stage, Attempt attempt, HttpResponse<?> response, Throwable error) {
+        if (!attempt.sent) {
+            return; // refused or failed before sending; no permission is held
+        }
+        if (error != null) {
+            circuitBreaker.onFailure(attempt.permit);
+        } else if (response.statusCode() == 429) {
+            circuitBreaker.release(attempt.permit);
+        } else if (RETRYABLE_STATUS.contains(response.statusCode())) {
+            circuitBreaker.onFailure(attempt.permit);
+        } else {
+            circuitBreaker.onSuccess(attempt.permit, System.nanoTime() - attempt.sentAt, slowCallNanos(stage));
+        }
+    }
+
+    /** Never throws: failures before sending complete the future exceptionally with no breaker permission held. */
+    private <T> CompletableFuture<HttpResponse<T>> sendOnce(Stage stage, String model, int estimatedTokens,
+                                                            BodySource body, HttpResponse.BodyHandler<T> handler,
+                                                            Attempt attempt) {
+        LlmCircuitBreaker.Permit permit = circuitBreaker.tryAcquire(model);
+        if (permit == null) {
+            return CompletableFuture.failedFuture(new LlmCircuitBreaker.CircuitOpenException(model));
+        }
+        attempt.permit = permit;
+        long waitMs;
+        HttpRequest request;
+        List<Closeable> opened = new CopyOnWriteArrayList<>();
+        try {
+            waitMs = rateLimiter.reserve(model, estimatedTokens);
+            request = HttpRequest.newBuilder()
+                .uri(URI.create(chatCompletionsUrl()))
+                .timeout(timeoutFor(stage))
+                .header("Authorization", "Bearer " + apiKey)
+                .header("Content-Type", "application/json")
+                .POST(body.publisher(opened))
+                .build();
+        } catch (LlmRateLimiter.RateLimitExceededException | RuntimeException e) {
+            circuitBreaker.release(permit);
+            return CompletableFuture.failedFuture(e);
+        }
+        CompletableFuture<HttpRequest> ready = waitMs <= 0
+            ? CompletableFuture.completedFuture(request)
+            : CompletableFuture.supplyAsync(() -> request,
+                CompletableFuture.delayedExecutor(waitMs, TimeUnit.MILLISECONDS, httpExecutor));
+        return ready.thenCompose(r -> {
+            attempt.sentAt = System.nanoTime();
+            attempt.sent = true;
+            // Closing the pipe stops the writer of an abandoned upload.
+            return httpClient.sendAsync(r, handler)
+                .whenComplete((response, error) -> opened.forEach(LlmTransport::closeQuietly));
+        });
+    }
+
+    private String chatCompletionsUrl() {
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return base + "/chat/completions";
+    }
+
+    /** A call that used more than {@code openai.circuit.slow-call-ratio} of its stage deadline counts as slow. */
+    private long slowCallNanos(Stage stage) {
+        return (long) (timeoutFor(stage).toNanos() * slowCallRatio);
+    }
+
+    private Duration timeoutFor(Stage stage) {
+        switch (stage) {
+            case PLAN:
+                return Duration.ofMillis(planTimeoutMs);
+            case ALTERED_DOC:
+                return Duration.ofMillis(alteredDocTimeoutMs);
+            case ALT_TEXT:
+            default:
+                return Duration.ofMillis(altTextTimeoutMs);
+        }
+    }
+}
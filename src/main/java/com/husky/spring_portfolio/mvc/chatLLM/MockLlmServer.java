@@ -0,0 +1,234 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline stand-in for the Chat Completions API, for load tests of the full upload path without network or
+ * spend. Enable with {@code llm.mock.enabled=true} and point {@code openai.base-url} at
+ * {@code http://localhost:<llm.mock.port>/v1} (any non-empty {@code openai.api.key}).
+ *
+ * <p>Answers are canned per request shape: vision requests get alt-text JSON (an array keyed by
+ * {@code image_id} for batches), Stage 1 a one-issue corrections summary, Stage 2 the input document with
+ * {@code lang} added (or a matching patch in patch mode), streamed as SSE when {@code stream: true}. Each
+ * request waits {@code llm.mock.latency-ms} plus up to {@code llm.mock.latency-jitter-ms}, and fails with
+ * {@code llm.mock.error-status} at {@code llm.mock.error-rate}.
+ */
+@Component
+@ConditionalOnProperty(name = "llm.mock.enabled", havingValue = "true")
+public class MockLlmServer {
+
+    private static final Logger log = LoggerFactory.getLogger(MockLlmServer.class);
+
+    private static final String ALT_TEXT_JSON = "{\"decorative\": false, \"alt\": \"Mock description of the image.\", "
+        + "\"longdesc\": \"\", \"confidence\": 0.9, \"needs_human_review\": false}";
+
+    private static final String CORRECTIONS_SUMMARY = "CORRECTIONS SUMMARY — 1 errors found.\n\n---\n\n"
+        + "ERROR 1: The html element has no lang attribute.\n"
+        + "WCAG criterion: 3.1.1 Language of Page (Level A)\n"
+        + "Correction: Add lang=\"en\" to the html element.\n";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${llm.mock.port:8089}")
+    private int port;
+
+    @Value("${llm.mock.threads:32}")
+    private int threads;
+
+    @Value("${llm.mock.latency-ms:500}")
+    private long latencyMs;
+
+    @Value("${llm.mock.latency-jitter-ms:250}")
+    private long latencyJitterMs;
+
+    @Value("${llm.mock.error-rate:0}")
+    private double errorRate;
+
+    @Value("${llm.mock.error-status:503}")
+    private int errorStatus;
+
+    /** Pause between streamed chunks. */
+    @Value("${llm.mock.stream-chunk-delay-ms:20}")
+    private long streamChunkDelayMs;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.start();
+        log.warn("Mock LLM server listening on http://127.0.0.1:{}/v1 (latency {}+{} ms, error rate {})",
+            port, latencyMs, latencyJitterMs, errorRate);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", "{\"error\": {\"message\": \"POST only\"}}");
+                return;
+            }
+            JsonNode request;
+            try (InputStream in = exchange.getRequestBody()) {
+                request = objectMapper.readTree(in);
+            }
+            sleep(latencyMs + (latencyJitterMs > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMs + 1) : 0));
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, errorStatus, "application/json", "{\"error\": {\"message\": \"Injected mock failure\"}}");
+                return;
+            }
+            String content = cannedContent(request);
+            String model = request.path("model").asText("mock");
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, model, content);
+            } else {
+                send(exchange, 200, "application/json", objectMapper.writeValueAsString(completion(model, content)));
+            }
+        } catch (Exception e) {
+            log.warn("Mock LLM request failed", e);
+        }
+    }
+
+    private String cannedContent(JsonNode request) {
+        JsonNode messages = request.path("messages");
+        String system = "";
+        String user = "";
+        for (JsonNode message : messages) {
+            JsonNode content = message.path("content");
+            if (content.isArray()) {
+                return altTextContent(content); // text + image_url parts: vision request
+            }
+            if ("system".equals(message.path("role").asText())) {
+                system = content.asText("");
+            } else if ("user".equals(message.path("role").asText())) {
+                user = content.asText("");
+            }
+        }
+        if (system.contains("JSON array")) {
+            return "[{\"find\": \"<html>\", \"replace\": \"<html lang=\\\"en\\\">\"}]";
+        }
+        if (system.contains("return a single fully compliant HTML document")) {
+            int start = user.indexOf("<!DOCTYPE html>");
+            String html = start >= 0 ? user.substring(start) : "<!DOCTYPE html>\n<html>\n<body>\n</body>\n</html>\n";
+            return html.replaceFirst("<html>", "<html lang=\"en\">");
+        }
+        return CORRECTIONS_SUMMARY;
+    }
+
+    /** One alt-text object, or an array keyed by {@code image_id} for a batched request. */
+    private String altTextContent(JsonNode parts) {
+        List<String> imageIds = new ArrayList<>();
+        for (JsonNode part : parts) {
+            String text = part.path("text").asText("");
+            if (text.startsWith("image_id: ")) {
+                int end = text.indexOf('\n');
+                imageIds.add(text.substring("image_id: ".length(), end >= 0 ? end : text.length()).trim());
+            }
+        }
+        if (imageIds.isEmpty()) {
+            return ALT_TEXT_JSON;
+        }
+        StringBuilder array = new StringBuilder("[");
+        for (String imageId : imageIds) {
+            if (array.length() > 1) {
+                array.append(", ");
+            }
+            array.append("{\"image_id\": \"").append(imageId).append("\", ").append(ALT_TEXT_JSON.substring(1));
+        }
+        return array.append("]").toString();
+    }
+
+    private ObjectNode completion(String model, String content) {
+        ObjectNode root = objectMapper.createObjectNode();
+        root.put("id", "chatcmpl-mock");
+        root.put("object", "chat.completion");
+        root.put("model", model);
+        ObjectNode choice = root.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", "stop");
+        return root;
+    }
+
+    private void stream(HttpExchange exchange, String model, String content) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String piece : split(content, 64)) {
+                ObjectNode chunk = objectMapper.createObjectNode();
+                chunk.put("object", "chat.completion.chunk");
+                chunk.put("model", model);
+                chunk.putArray("choices").addObject().put("index", 0).putObject("delta").put("content", piece);
+                out.write(("data: " + objectMapper.writeValueAsString(chunk) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sleep(streamChunkDelayMs);
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static List<String> split(String text, int size) {
+        List<String> pieces = new ArrayList<>();
+        for (int i = 0; i < text.length(); i += size) {
+            pieces.add(text.substring(i, Math.min(text.length(), i + size)));
+        }
+        return pieces;
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long ms) {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
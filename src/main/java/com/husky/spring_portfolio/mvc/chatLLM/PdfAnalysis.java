@@ -0,0 +1,438 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSNull;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.cos.COSString;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceRGB;
+import org.apache.pdfbox.pdmodel.graphics.color.PDICCBased;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Result of a single parse of an uploaded PDF: full text, per-page text, images with page context,
+ * tagging status and document metadata. The {@link PDDocument} is opened once in {@link #analyze}
+ * and closed before returning, so later pipeline stages work from these results instead of re-reading the file.
+ */
+public class PdfAnalysis {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfAnalysis.class);
+
+    /** Image dictionary entries that change how its stream bytes decode or render. */
+    private static final List<COSName> RENDERING_KEYS = List.of(COSName.WIDTH, COSName.HEIGHT,
+        COSName.BITS_PER_COMPONENT, COSName.COLORSPACE, COSName.DECODE, COSName.FILTER, COSName.DECODE_PARMS,
+        COSName.IMAGE_MASK, COSName.MASK, COSName.SMASK, COSName.SMASK_IN_DATA);
+
+    /** Decode every filter except DCTDecode, leaving the JPEG bitstream intact. */
+    private static final List<String> JPEG_STOP_FILTERS = List.of(COSName.DCT_DECODE.getName());
+
+    private String fullText;
+    private List<String> pageTexts = new ArrayList<>();
+    private List<ImageInfo> images = new ArrayList<>();
+    private boolean tagged;
+    private int pageCount;
+    private String title;
+    private String author;
+    private String language;
+    private PdfMemoryPolicy.Mode memoryMode;
+
+    private PdfAnalysis() {}
+
+    /**
+     * Load the PDF once and run every extraction step against the same {@link PDDocument}.
+     */
+    public static PdfAnalysis analyze(Path pdfPath) throws IOException {
+        return analyze(pdfPath, null, 0, PdfMemoryPolicy.unlimited());
+    }
+
+    /**
+     * Like {@link #analyze(Path)}, but when {@code pool} is non-null and the document has more than
+     * {@code chunkPages} pages, the page range is split across the pool. PDFBox documents are not
+     * thread-safe, so each worker opens its own handle for its page range; results are merged in page order.
+     * {@code memoryPolicy} picks the PDFBox stream cache from the file size; every handle uses the same mode.
+     */
+    public static PdfAnalysis analyze(Path pdfPath, ForkJoinPool pool, int chunkPages,
+                                      PdfMemoryPolicy memoryPolicy) throws IOException {
+        PdfAnalysis analysis = new PdfAnalysis();
+        analysis.memoryMode = memoryPolicy.modeFor(Files.size(pdfPath));
+        StreamCacheCreateFunction streamCache = memoryPolicy.streamCacheFor(analysis.memoryMode);
+        Map<String, EncodedImage> encodedImages = new ConcurrentHashMap<>();
+        List<PageResult> pages;
+        try (PDDocument document = open(pdfPath, streamCache)) {
+            analysis.readMetadata(document);
+            if (pool == null || chunkPages <= 0 || analysis.pageCount <= chunkPages) {
+                pages = extractPages(document, 1, analysis.pageCount, encodedImages);
+            } else {
+                pages = null;
+            }
+        }
+        if (pages == null) {
+            try {
+                pages = pool.invoke(new PageRangeTask(pdfPath, streamCache, 1, analysis.pageCount, chunkPages, encodedImages));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        for (PageResult page : pages) {
+            analysis.pageTexts.add(page.text);
+            analysis.images.addAll(page.images);
+        }
+        analysis.fullText = String.join("", analysis.pageTexts);
+        return analysis;
+    }
+
+    /**
+     * Open the PDF from disk through a buffered random-access reader, so only the pages of the file being
+     * parsed are held in memory instead of the whole upload as a byte[].
+     */
+    private static PDDocument open(Path pdfPath, StreamCacheCreateFunction streamCache) throws IOException {
+        return Loader.loadPDF(new RandomAccessReadBufferedFile(pdfPath.toFile()), streamCache);
+    }
+
+    /**
+     * One stripping pass per page (1-based, inclusive range) builds the page table; images on each page
+     * get that page's text as context. {@code encodedImages} is shared by all workers of one analysis.
+     */
+    private static List<PageResult> extractPages(PDDocument document, int startPage, int endPage,
+                                                 Map<String, EncodedImage> encodedImages) throws IOException {
+        List<PageResult> results = new ArrayList<>(endPage - startPage + 1);
+        // Same XObject referenced from many pages resolves to the same COSStream within one handle
+        Map<COSStream, String> hashesByStream = new IdentityHashMap<>();
+        PDFTextStripper stripper = new PDFTextStripper();
+        for (int pageNum = startPage; pageNum <= endPage; pageNum++) {
+            stripper.setStartPage(pageNum);
+            stripper.setEndPage(pageNum);
+            String pageText = stripper.getText(document);
+            PDPage page = document.getPage(pageNum - 1);
+            results.add(new PageResult(pageText,
+                extractPageImages(page, pageNum, pageText, hashesByStream, encodedImages)));
+        }
+        return results;
+    }
+
+    /**
+     * Splits a page range in halves until it fits in {@code chunkPages}, then extracts it with a
+     * worker-local {@link PDDocument}.
+     */
+    private static class PageRangeTask extends RecursiveTask<List<PageResult>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Path pdfPath;
+        private final StreamCacheCreateFunction streamCache;
+        private final int startPage;
+        private final int endPage;
+        private final int chunkPages;
+        private final Map<String, EncodedImage> encodedImages;
+
+        PageRangeTask(Path pdfPath, StreamCacheCreateFunction streamCache, int startPage, int endPage, int chunkPages,
+                      Map<String, EncodedImage> encodedImages) {
+            this.pdfPath = pdfPath;
+            this.streamCache = streamCache;
+            this.startPage = startPage;
+            this.endPage = endPage;
+            this.chunkPages = chunkPages;
+            this.encodedImages = encodedImages;
+        }
+
+        @Override
+        protected List<PageResult> compute() {
+            if (endPage - startPage + 1 <= chunkPages) {
+                try (PDDocument document = open(pdfPath, streamCache)) {
+                    return extractPages(document, startPage, endPage, encodedImages);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            int mid = startPage + (endPage - startPage) / 2;
+            PageRangeTask left = new PageRangeTask(pdfPath, streamCache, startPage, mid, chunkPages, encodedImages);
+            PageRangeTask right = new PageRangeTask(pdfPath, streamCache, mid + 1, endPage, chunkPages, encodedImages);
+            left.fork();
+            List<PageResult> rightResults = right.compute();
+            List<PageResult> merged = new ArrayList<>(left.join());
+            merged.addAll(rightResults);
+            return merged;
+        }
+    }
+
+    private static class PageResult {
+        final String text;
+        final List<ImageInfo> images;
+
+        PageResult(String text, List<ImageInfo> images) {
+            this.text = text;
+            this.images = images;
+        }
+    }
+
+    private void readMetadata(PDDocument document) {
+        pageCount = document.getNumberOfPages();
+        // Structure tree presence is the (simplified) tagged-PDF check used by the accessibility report
+        tagged = document.getDocumentCatalog().getStructureTreeRoot() != null;
+        language = document.getDocumentCatalog().getLanguage();
+        PDDocumentInformation info = document.getDocumentInformation();
+        if (info != null) {
+            title = info.getTitle();
+            author = info.getAuthor();
+        }
+    }
+
+    /**
+     * Extract images from one page's resources; page text is attached as context. Each image is keyed by a
+     * content hash and decoded/encoded only the first time that hash is seen; repeats share the bytes.
+     */
+    private static List<ImageInfo> extractPageImages(PDPage page, int pageNum, String pageText,
+                                                     Map<COSStream, String> hashesByStream,
+                                                     Map<String, EncodedImage> encodedImages) throws IOException {
+        List<ImageInfo> images = new ArrayList<>();
+        PDResources resources = page.getResources();
+        if (resources == null) {
+            return images;
+        }
+        int imageIndex = 0;
+        for (COSName xObjectName : resources.getXObjectNames()) {
+            PDXObject xObject = resources.getXObject(xObjectName);
+            if (!(xObject instanceof PDImageXObject)) {
+                continue;
+            }
+            PDImageXObject image = (PDImageXObject) xObject;
+            try {
+                String contentHash = hashesByStream.get(image.getCOSObject());
+                if (contentHash == null) {
+                    contentHash = contentHash(image);
+                    hashesByStream.put(image.getCOSObject(), contentHash);
+                }
+                EncodedImage encoded = encodedImages.get(contentHash);
+                if (encoded == null) {
+                    encoded = encode(image);
+                    EncodedImage existing = encodedImages.putIfAbsent(contentHash, encoded);
+                    if (existing != null) {
+                        encoded = existing;
+                    }
+                }
+
+                ImageInfo imageInfo = new ImageInfo();
+                imageInfo.setPageNumber(pageNum);
+                imageInfo.setImageId("img_" + pageNum + "_" + imageIndex);
+                imageInfo.setContentHash(contentHash);
+                imageInfo.setImageBytes(encoded.bytes);
+                imageInfo.setImageFormat(encoded.format);
+                // Exact placement would need content-stream parsing; only the pixel size is known here
+                imageInfo.setX(0);
+                imageInfo.setY(0);
+                imageInfo.setWidth(encoded.width);
+                imageInfo.setHeight(encoded.height);
+                imageInfo.setContextText(pageText);
+
+                images.add(imageInfo);
+                imageIndex++;
+            } catch (Exception e) {
+                log.warn("Error extracting image {} on page {}: {}", xObjectName.getName(), pageNum, e.getMessage());
+            }
+        }
+        return images;
+    }
+
+    /**
+     * SHA-256 of the encoded (still filtered) stream bytes plus the dictionary entries that change how those
+     * bytes render, so identical images stored as separate objects still collapse to one key. Colour spaces,
+     * masks and soft masks are hashed by value (ICC profiles, palettes and mask streams included), since
+     * {@link #encode} renders through all of them.
+     */
+    static String contentHash(PDImageXObject image) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digestRawBytes(digest, image.getCOSObject());
+        Set<COSBase> path = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (COSName key : RENDERING_KEYS) {
+            digestText(digest, "/" + key.getName() + "=");
+            digestCos(digest, image.getCOSObject().getDictionaryObject(key), path);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Feed a COS value into {@code digest} by content: references resolved, dictionary keys sorted, streams as
+     * their dictionary plus raw bytes. {@code path} holds the containers being visited, to cut reference cycles.
+     */
+    private static void digestCos(MessageDigest digest, COSBase value, Set<COSBase> path) throws IOException {
+        COSBase v = value instanceof COSObject ? ((COSObject) value).getObject() : value;
+        if (v == null || v instanceof COSNull) {
+            digestText(digest, "null;");
+        } else if (v instanceof COSName) {
+            digestText(digest, "/" + ((COSName) v).getName() + ";");
+        } else if (v instanceof COSString) {
+            byte[] bytes = ((COSString) v).getBytes();
+            digestText(digest, "(" + bytes.length + ")");
+            digest.update(bytes);
+        } else if (v instanceof COSArray || v instanceof COSDictionary) {
+            if (!path.add(v)) {
+                digestText(digest, "cycle;");
+                return;
+            }
+            if (v instanceof COSArray) {
+                digestText(digest, "[");
+                for (COSBase item : (COSArray) v) {
+                    digestCos(digest, item, path);
+                }
+                digestText(digest, "]");
+            } else {
+                COSDictionary dictionary = (COSDictionary) v;
+                List<COSName> keys = new ArrayList<>(dictionary.keySet());
+                keys.sort(Comparator.comparing(COSName::getName));
+                digestText(digest, "<<");
+                for (COSName key : keys) {
+                    digestText(digest, "/" + key.getName() + "=");
+                    digestCos(digest, dictionary.getItem(key), path);
+                }
+                digestText(digest, ">>");
+                if (v instanceof COSStream) {
+                    digestRawBytes(digest, (COSStream) v);
+                }
+            }
+            path.remove(v);
+        } else {
+            digestText(digest, v + ";"); // numbers and booleans
+        }
+    }
+
+    private static void digestRawBytes(MessageDigest digest, COSStream stream) throws IOException {
+        try (InputStream raw = stream.createRawInputStream()) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = raw.read(buf)) > 0) {
+                digest.update(buf, 0, n);
+            }
+        }
+    }
+
+    private static void digestText(MessageDigest digest, String text) {
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * JPEG (DCTDecode) streams that browsers and the vision API can show as-is are emitted as their raw bytes;
+     * everything else is decoded and re-encoded as PNG. JPX is transcoded too: neither the vision API nor most
+     * browsers accept {@code image/jp2}.
+     */
+    private static EncodedImage encode(PDImageXObject image) throws IOException {
+        if (isPassThroughJpeg(image)) {
+            try (InputStream jpeg = image.createInputStream(JPEG_STOP_FILTERS)) {
+                return new EncodedImage(jpeg.readAllBytes(), "JPEG", image.getWidth(), image.getHeight());
+            }
+        }
+        BufferedImage bufferedImage = image.getImage();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "PNG", baos);
+        return new EncodedImage(baos.toByteArray(), "PNG", bufferedImage.getWidth(), bufferedImage.getHeight());
+    }
+
+    /**
+     * A DCT stream renders the same outside the PDF only when nothing in the image dictionary alters it:
+     * gray/RGB color (CMYK JPEGs are shown inverted by many viewers), no Decode array and no masks.
+     */
+    static boolean isPassThroughJpeg(PDImageXObject image) throws IOException {
+        if (!"jpg".equals(image.getSuffix()) || image.isStencil() || image.getDecode() != null) {
+            return false;
+        }
+        if (image.getSoftMask() != null || image.getMask() != null) {
+            return false;
+        }
+        PDColorSpace colorSpace = image.getColorSpace();
+        if (colorSpace instanceof PDDeviceRGB || colorSpace instanceof PDDeviceGray) {
+            return true;
+        }
+        if (colorSpace instanceof PDICCBased) {
+            int components = colorSpace.getNumberOfComponents();
+            return components == 1 || components == 3;
+        }
+        return false;
+    }
+
+    /** Encoded bytes for one unique image, shared by every {@link ImageInfo} with the same content hash. */
+    private static class EncodedImage {
+        final byte[] bytes;
+        final String format;
+        final int width;
+        final int height;
+
+        EncodedImage(byte[] bytes, String format, int width, int height) {
+            this.bytes = bytes;
+            this.format = format;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public String getFullText() { return fullText; }
+
+    /** Text per page, index 0 = page 1. */
+    public List<String> getPageTexts() { return Collections.unmodifiableList(pageTexts); }
+
+    /** Text of a 1-based page, or empty string when out of range. */
+    public String getPageText(int pageNumber) {
+        if (pageNumber < 1 || pageNumber > pageTexts.size()) {
+            return "";
+        }
+        return pageTexts.get(pageNumber - 1);
+    }
+
+    public List<ImageInfo> getImages() { return images; }
+
+    public boolean isTagged() { return tagged; }
+
+    public int getPageCount() { return pageCount; }
+
+    public String getTitle() { return title; }
+
+    public String getAuthor() { return author; }
+
+    /** Document catalog /Lang entry, or null when not declared. */
+    public String getLanguage() { return language; }
+
+    /** PDFBox stream-cache mode the document was parsed with. */
+    public PdfMemoryPolicy.Mode getMemoryMode() { return memoryMode; }
+}
@@ -0,0 +1,25 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Worker pool for page-range PDF extraction (see {@link PdfAnalysis#analyze(Path, ForkJoinPool, int, PdfMemoryPolicy)}).
+ * Kept separate from {@code ForkJoinPool.commonPool()} so long documents cannot starve other parallel work.
+ */
+@Configuration
+public class PdfExtractionConfiguration {
+
+    /**
+     * @param parallelism worker count; 0 or negative = number of available processors
+     */
+    @Bean(name = "pdfExtractionPool", destroyMethod = "shutdown")
+    public ForkJoinPool pdfExtractionPool(@Value("${pdf.extraction.parallelism:0}") int parallelism) {
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(workers);
+    }
+}
@@ -0,0 +1,57 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+
+import java.io.File;
+
+/**
+ * Per-document memory budget for PDFBox. Small files keep PDFBox's heap-only stream cache; files above
+ * {@code spillThresholdBytes} switch to a mixed cache capped at {@code maxMainMemoryBytes} of heap that spills
+ * to scratch files, and a zero heap budget forces temp-file-only caching.
+ */
+public class PdfMemoryPolicy {
+
+    /** Stream-cache mode chosen for one document; reported in {@link PipelineMetrics}. */
+    public enum Mode { MAIN_MEMORY, MIXED, TEMP_FILE }
+
+    private final long maxMainMemoryBytes;
+    private final long spillThresholdBytes;
+    private final File tempDir;
+
+    /**
+     * @param maxMainMemoryBytes heap budget per document once spilling is active; 0 = temp files only
+     * @param spillThresholdBytes file size above which the budget applies; negative = always heap-only
+     * @param tempDir scratch-file directory, or null for {@code java.io.tmpdir}
+     */
+    public PdfMemoryPolicy(long maxMainMemoryBytes, long spillThresholdBytes, File tempDir) {
+        this.maxMainMemoryBytes = maxMainMemoryBytes;
+        this.spillThresholdBytes = spillThresholdBytes;
+        this.tempDir = tempDir;
+    }
+
+    /** PDFBox defaults: everything on the heap, no budget. */
+    public static PdfMemoryPolicy unlimited() {
+        return new PdfMemoryPolicy(-1, -1, null);
+    }
+
+    public Mode modeFor(long fileSizeBytes) {
+        if (spillThresholdBytes < 0 || fileSizeBytes <= spillThresholdBytes) {
+            return Mode.MAIN_MEMORY;
+        }
+        return maxMainMemoryBytes > 0 ? Mode.MIXED : Mode.TEMP_FILE;
+    }
+
+    public StreamCacheCreateFunction streamCacheFor(Mode mode) {
+        switch (mode) {
+            case MIXED:
+                return MemoryUsageSetting.setupMixed(maxMainMemoryBytes).setTempDir(tempDir).streamCache;
+            case TEMP_FILE:
+                return MemoryUsageSetting.setupTempFileOnly().setTempDir(tempDir).streamCache;
+            case MAIN_MEMORY:
+            default:
+                return IOUtils.createMemoryOnlyStreamCache();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Threads for the upload pipeline's stage graph (alt text, report, Stage 1, Stage 2; see
+ * {@link chatDocService#runPipeline}). Stage tasks mostly wait on LLM responses, so they get their own
+ * pool rather than the HTTP client's response threads or {@code ForkJoinPool.commonPool()}. Scheduling is
+ * enabled for the {@link PipelineJobQueue} poller and lease heartbeat.
+ */
+@Configuration
+@EnableScheduling
+public class PipelineExecutorConfiguration {
+
+    @Bean(name = "pipelineStageExecutor")
+    public ThreadPoolTaskExecutor pipelineStageExecutor(@Value("${pipeline.stage.threads:8}") int threads) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setThreadNamePrefix("pipeline-stage-");
+        ex.initialize();
+        return ex;
+    }
+
+    /**
+     * Runs jobs claimed by {@link PipelineJobQueue}: one thread per document in progress, waiting on its stage
+     * graph. Backlog lives in the pipeline_job table, not here: the queue claims a job only for a free slot. The
+     * small executor queue just covers a slot freed a moment before its thread is idle again.
+     */
+    @Bean(name = "pipelineWorkerExecutor")
+    public ThreadPoolTaskExecutor pipelineWorkerExecutor(@Value("${pipeline.worker.threads:4}") int threads) {
+        ThreadPoolTaskExecutor ex = new ThreadPoolTaskExecutor();
+        ex.setCorePoolSize(threads);
+        ex.setMaxPoolSize(threads);
+        ex.setQueueCapacity(threads);
+        ex.setThreadNamePrefix("pipeline-worker-");
+        ex.initialize();
+        return ex;
+    }
+}
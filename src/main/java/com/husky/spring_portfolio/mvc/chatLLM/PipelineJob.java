@@ -0,0 +1,93 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import java.time.LocalDateTime;
+
+/**
+ * Durable unit of pipeline work for one {@link chatDoc}, claimed by a node through {@link PipelineJobQueue}.
+ * A RUNNING job whose lease has expired (its node died or stopped heartbeating) is claimable again.
+ */
+@Entity
+@Table(name = "pipeline_job", indexes = {
+    @Index(name = "idx_pipeline_job_status", columnList = "status, availableAt"),
+    @Index(name = "idx_pipeline_job_document", columnList = "documentId")
+})
+public class PipelineJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    private Long id;
+
+    private Long documentId;
+
+    /** QUEUED | RUNNING | DONE | FAILED */
+    @Column(length = 16)
+    private String status;
+
+    /** Node holding the lease while RUNNING. */
+    @Column(length = 128)
+    private String owner;
+
+    /** Claimable again after this instant unless the owner heartbeats. */
+    private LocalDateTime leaseExpiresAt;
+
+    /** Earliest time a QUEUED job may be claimed (retry backoff). */
+    private LocalDateTime availableAt;
+
+    /** Claims so far, including the current one. */
+    private int attempts;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    // Constructors
+    public PipelineJob() {}
+
+    public PipelineJob(Long documentId) {
+        this.documentId = documentId;
+        this.status = "QUEUED";
+        this.createdAt = LocalDateTime.now();
+        this.availableAt = this.createdAt;
+        this.updatedAt = this.createdAt;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getOwner() { return owner; }
+    public void setOwner(String owner) { this.owner = owner; }
+
+    public LocalDateTime getLeaseExpiresAt() { return leaseExpiresAt; }
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) { this.leaseExpiresAt = leaseExpiresAt; }
+
+    public LocalDateTime getAvailableAt() { return availableAt; }
+    public void setAvailableAt(LocalDateTime availableAt) { this.availableAt = availableAt; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
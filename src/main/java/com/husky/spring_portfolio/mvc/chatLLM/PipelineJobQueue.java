@@ -0,0 +1,297 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Durable pipeline work shared by every node on the database ({@link PipelineJob} rows). Async uploads are
+ * queued and pulled by whichever node has a free {@code pipelineWorkerExecutor} slot; synchronous uploads are
+ * recorded as already claimed by this node. The owner renews its lease every {@code pipeline.jobs.heartbeat-ms};
+ * once a lease lapses (node died) another node re-claims the job and runs the pipeline again from the stored
+ * PDF. A job that fails, or whose lease lapses, {@code pipeline.jobs.max-attempts} times is marked FAILED
+ * together with its document. A node that finds its lease gone stops its own run and leaves the job and the
+ * document to the node that re-claimed it.
+ * <p>
+ * Lease expiry is written and compared with each node's own {@link LocalDateTime#now()}, so nodes must keep
+ * their clocks in sync (NTP): a node whose clock runs ahead by more than {@code pipeline.jobs.lease-ms} minus
+ * {@code pipeline.jobs.heartbeat-ms} sees live leases as expired and re-claims running jobs.
+ */
+@Component
+public class PipelineJobQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineJobQueue.class);
+
+    private final PipelineJobRepository jobRepository;
+    private final chatDocRepository documentRepository;
+    private final chatDocService documentService;
+    private final Executor pipelineWorkerExecutor;
+    private final PipelineMetrics pipelineMetrics;
+    private final String nodeId;
+    /** Free worker threads; a job is claimed only when one is available. */
+    private final Semaphore slots;
+    /** Jobs this node holds a lease on, renewed by {@link #heartbeat}. */
+    private final Map<Long, Lease> heldJobs = new ConcurrentHashMap<>();
+
+    /** False on nodes that accept uploads but should not pull queued jobs. */
+    @Value("${pipeline.jobs.enabled:true}")
+    private boolean pollingEnabled;
+
+    @Value("${pipeline.jobs.lease-ms:300000}")
+    private long leaseMs;
+
+    @Value("${pipeline.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    /** Backoff before a failed job is retried, multiplied by the attempts so far. */
+    @Value("${pipeline.jobs.retry-delay-ms:30000}")
+    private long retryDelayMs;
+
+    /** Async submissions are refused (503) while this many jobs are queued. */
+    @Value("${pipeline.jobs.max-queued:100}")
+    private long maxQueued;
+
+    public PipelineJobQueue(PipelineJobRepository jobRepository,
+                            chatDocRepository documentRepository,
+                            chatDocService documentService,
+                            @Qualifier("pipelineWorkerExecutor") Executor pipelineWorkerExecutor,
+                            PipelineMetrics pipelineMetrics,
+                            @Value("${pipeline.worker.threads:4}") int workerThreads,
+                            @Value("${pipeline.jobs.node-id:}") String nodeId) {
+        this.jobRepository = jobRepository;
+        this.documentRepository = documentRepository;
+        this.documentService = documentService;
+        this.pipelineWorkerExecutor = pipelineWorkerExecutor;
+        this.pipelineMetrics = pipelineMetrics;
+        this.slots = new Semaphore(Math.max(1, workerThreads));
+        this.nodeId = nodeId != null && !nodeId.isBlank()
+            ? nodeId
+            : ManagementFactory.getRuntimeMXBean().getName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * Store the upload and queue its pipeline; the returned document is still {@code UPLOADED}. Throws
+     * {@link RejectedExecutionException} when {@code pipeline.jobs.max-queued} jobs are already waiting.
+     */
+    public chatDoc submit(MultipartFile file) throws IOException {
+        if (jobRepository.countByStatus("QUEUED") >= maxQueued) {
+            pipelineMetrics.increment("pipeline.jobs.rejected");
+            throw new RejectedExecutionException("Pipeline job queue is full");
+        }
+        chatDoc document = documentService.storeUpload(file);
+        jobRepository.save(new PipelineJob(document.getId()));
+        pipelineMetrics.increment("pipeline.jobs.submitted");
+        poll();
+        return document;
+    }
+
+    /**
+     * Store the upload and run its pipeline on the calling thread under a job leased to this node. If the lease is
+     * lost meanwhile, the document is returned as stored while another node finishes it.
+     */
+    public chatDoc processNow(MultipartFile file) throws IOException {
+        chatDoc document = documentService.storeUpload(file);
+        PipelineJob job = new PipelineJob(document.getId());
+        job.setStatus("RUNNING");
+        job.setOwner(nodeId);
+        job.setAttempts(1);
+        job.setLeaseExpiresAt(leaseFrom(LocalDateTime.now()));
+        job = jobRepository.save(job);
+        Lease lease = new Lease(document.getId());
+        heldJobs.put(job.getId(), lease);
+        try {
+            chatDoc processed = documentService.runPipeline(document, true, lease.lost);
+            finish(job.getId(), "DONE", null);
+            return processed;
+        } catch (IOException | RuntimeException e) {
+            if (lease.lost.isDone()) {
+                log.warn("Pipeline job {} (document {}) continues on another node: lease lost", job.getId(),
+                    document.getId());
+                pipelineMetrics.increment("pipeline.jobs.abandoned");
+                return documentRepository.findById(document.getId()).orElse(document);
+            }
+            finish(job.getId(), "FAILED", e.getMessage());
+            throw e;
+        } finally {
+            heldJobs.remove(job.getId());
+        }
+    }
+
+    /** Claim due jobs, up to the free worker slots, and start them on {@code pipelineWorkerExecutor}. */
+    @Scheduled(fixedDelayString = "${pipeline.jobs.poll-ms:2000}")
+    public void poll() {
+        int free = slots.availablePermits();
+        if (!pollingEnabled || free == 0) {
+            return;
+        }
+        List<Long> candidates;
+        try {
+            candidates = jobRepository.findClaimableIds(LocalDateTime.now(), PageRequest.of(0, free));
+        } catch (RuntimeException e) {
+            log.warn("Could not read pipeline jobs: {}", e.getMessage());
+            return;
+        }
+        for (Long jobId : candidates) {
+            if (!slots.tryAcquire()) {
+                return;
+            }
+            if (!claimAndStart(jobId)) {
+                slots.release();
+            }
+        }
+    }
+
+    /** Renew the lease of every job this node is running. */
+    @Scheduled(fixedDelayString = "${pipeline.jobs.heartbeat-ms:30000}")
+    public void heartbeat() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<Long, Lease> held : heldJobs.entrySet()) {
+            Long jobId = held.getKey();
+            Lease lease = held.getValue();
+            if (lease.lost.isDone()) {
+                continue;
+            }
+            try {
+                if (jobRepository.heartbeat(jobId, nodeId, leaseFrom(now), now) == 0) {
+                    log.warn("Lost lease on pipeline job {} (document {}); stopping the local run",
+                        jobId, lease.documentId);
+                    pipelineMetrics.increment("pipeline.jobs.leaseLost");
+                    lease.lost.complete(null);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Heartbeat for pipeline job {} failed: {}", jobId, e.getMessage());
+            }
+        }
+        pipelineMetrics.setGauge("pipeline.jobs.held", heldJobs.size());
+    }
+
+    private boolean claimAndStart(Long jobId) {
+        PipelineJob job;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (jobRepository.claim(jobId, nodeId, leaseFrom(now), now) == 0) {
+                return false; // another node won it
+            }
+            job = jobRepository.findById(jobId).orElse(null);
+        } catch (RuntimeException e) {
+            log.warn("Could not claim pipeline job {}: {}", jobId, e.getMessage());
+            return false;
+        }
+        if (job == null) {
+            return false;
+        }
+        Lease lease = new Lease(job.getDocumentId());
+        heldJobs.put(jobId, lease);
+        pipelineMetrics.increment("pipeline.jobs.claimed");
+        try {
+            pipelineWorkerExecutor.execute(() -> run(job, lease));
+            return true;
+        } catch (RejectedExecutionException e) {
+            heldJobs.remove(jobId);
+            jobRepository.requeue(jobId, nodeId, "Worker pool full", LocalDateTime.now(), LocalDateTime.now());
+            return false;
+        }
+    }
+
+    private void run(PipelineJob job, Lease lease) {
+        try {
+            if (job.getAttempts() > maxAttempts) {
+                String error = "Abandoned after " + maxAttempts + " attempts";
+                if (finish(job.getId(), "FAILED", error)) {
+                    updateDocument(job.getDocumentId(), "FAILED", "FAILED");
+                }
+                return;
+            }
+            chatDoc document = documentRepository.findById(job.getDocumentId()).orElse(null);
+            if (document == null) {
+                finish(job.getId(), "FAILED", "Document not found");
+                return;
+            }
+            if (document.getOutcomeStatus() != null && !"FAILED".equals(document.getOutcomeStatus())) {
+                finish(job.getId(), "DONE", null); // finished before the previous owner recorded it
+                return;
+            }
+            documentService.runPipeline(document, job.getAttempts() >= maxAttempts, lease.lost);
+            finish(job.getId(), "DONE", null);
+        } catch (Exception e) {
+            if (lease.lost.isDone()) {
+                log.warn("Pipeline job {} (document {}) stopped here: lease lost to another node",
+                    job.getId(), job.getDocumentId());
+                pipelineMetrics.increment("pipeline.jobs.abandoned");
+            } else if (job.getAttempts() < maxAttempts) {
+                LocalDateTime retryAt = LocalDateTime.now().plus(Duration.ofMillis(retryDelayMs * job.getAttempts()));
+                log.warn("Pipeline job {} (document {}) failed on attempt {}; retrying at {}: {}",
+                    job.getId(), job.getDocumentId(), job.getAttempts(), retryAt, e.getMessage());
+                if (jobRepository.requeue(job.getId(), nodeId, truncate(e.getMessage()), retryAt,
+                        LocalDateTime.now()) == 1) {
+                    updateDocument(job.getDocumentId(), "UPLOADED", null);
+                    pipelineMetrics.increment("pipeline.jobs.retried");
+                } else {
+                    log.warn("Pipeline job {} was re-claimed by another node; leaving its document alone", job.getId());
+                }
+            } else {
+                log.error("Pipeline job {} (document {}) failed permanently", job.getId(), job.getDocumentId(), e);
+                finish(job.getId(), "FAILED", e.getMessage());
+            }
+        } finally {
+            heldJobs.remove(job.getId());
+            slots.release();
+        }
+    }
+
+    /** @return false if another node re-claimed the job first (nothing was updated) */
+    private boolean finish(Long jobId, String status, String error) {
+        if (jobRepository.finish(jobId, nodeId, status, truncate(error), LocalDateTime.now()) == 0) {
+            log.warn("Pipeline job {} was re-claimed by another node before it finished here", jobId);
+            return false;
+        }
+        pipelineMetrics.increment("pipeline.jobs." + status.toLowerCase());
+        return true;
+    }
+
+    /** Queued again (UPLOADED, no outcome) or given up (FAILED) without the pipeline having run to its end here. */
+    private void updateDocument(Long documentId, String pipelineStatus, String outcome) {
+        documentRepository.findById(documentId).ifPresent(document -> {
+            document.setPipelineStatus(pipelineStatus);
+            document.setOutcomeStatus(outcome);
+            document.setStatus(outcome);
+            documentRepository.save(document);
+        });
+    }
+
+    private LocalDateTime leaseFrom(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(leaseMs));
+    }
+
+    /** A job this node runs; {@code lost} completes when a heartbeat finds the lease taken over. */
+    private static final class Lease {
+        final Long documentId;
+        final CompletableFuture<Void> lost = new CompletableFuture<>();
+
+        Lease(Long documentId) {
+            this.documentId = documentId;
+        }
+    }
+
+    private static String truncate(String message) {
+        return message != null && message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
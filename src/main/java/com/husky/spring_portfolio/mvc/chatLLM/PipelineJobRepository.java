@@ -0,0 +1,52 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import jakarta.transaction.Transactional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+/**
+ * Claim, heartbeat and finish are conditional single-statement updates, so nodes sharing the database never
+ * both win a job: the caller owns the job only when the update count is 1.
+ */
+public interface PipelineJobRepository extends JpaRepository<PipelineJob, Long> {
+
+    /** Queued jobs that are due, then running jobs whose lease has expired; oldest first. */
+    @Query("SELECT j.id FROM PipelineJob j WHERE (j.status = 'QUEUED' AND j.availableAt <= ?1)"
+        + " OR (j.status = 'RUNNING' AND j.leaseExpiresAt < ?1) ORDER BY j.id ASC")
+    List<Long> findClaimableIds(LocalDateTime now, Pageable page);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PipelineJob j SET j.status = 'RUNNING', j.owner = ?2, j.leaseExpiresAt = ?3,"
+        + " j.attempts = j.attempts + 1, j.updatedAt = ?4 WHERE j.id = ?1"
+        + " AND ((j.status = 'QUEUED' AND j.availableAt <= ?4) OR (j.status = 'RUNNING' AND j.leaseExpiresAt < ?4))")
+    int claim(Long id, String owner, LocalDateTime leaseExpiresAt, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE PipelineJob j SET j.leaseExpiresAt = ?3, j.updatedAt = ?4"
+        + " WHERE j.id = ?1 AND j.owner = ?2 AND j.status = 'RUNNING'")
+    int heartbeat(Long id, String owner, LocalDateTime leaseExpiresAt, LocalDateTime now);
+
+    /** End the job as DONE or FAILED. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE PipelineJob j SET j.status = ?3, j.lastError = ?4, j.owner = NULL, j.leaseExpiresAt = NULL,"
+        + " j.updatedAt = ?5 WHERE j.id = ?1 AND j.owner = ?2 AND j.status = 'RUNNING'")
+    int finish(Long id, String owner, String status, String lastError, LocalDateTime now);
+
+    /** Give the job back for another attempt after {@code availableAt}. */
+    @Transactional
+    @Modifying
+    @Query("UPDATE PipelineJob j SET j.status = 'QUEUED', j.lastError = ?3, j.owner = NULL, j.leaseExpiresAt = NULL,"
+        + " j.availableAt = ?4, j.updatedAt = ?5 WHERE j.id = ?1 AND j.owner = ?2 AND j.status = 'RUNNING'")
+    int requeue(Long id, String owner, String lastError, LocalDateTime availableAt, LocalDateTime now);
+
+    long countByStatus(String status);
+}
@@ -0,0 +1,75 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process counters, gauges and stage timings for the upload pipeline, served by {@code GET /pipeline/metrics}.
+ * Names are dotted keys (e.g. {@code pdf.memory.mode.MIXED}); values reset on restart.
+ */
+@Component
+public class PipelineMetrics {
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Object> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+
+    public void increment(String name) {
+        counters.computeIfAbsent(name, k -> new LongAdder()).increment();
+    }
+
+    public void add(String name, long delta) {
+        if (delta != 0) {
+            counters.computeIfAbsent(name, k -> new LongAdder()).add(delta);
+        }
+    }
+
+    /** Last-value gauge (e.g. the memory mode of the most recent document). */
+    public void setGauge(String name, Object value) {
+        if (value == null) {
+            gauges.remove(name);
+        } else {
+            gauges.put(name, value);
+        }
+    }
+
+    /** Duration of one run of a stage; reported as {@code <name>.count / .totalMs / .maxMs / .lastMs}. */
+    public void recordTiming(String name, long nanos) {
+        timings.computeIfAbsent(name, k -> new Timing()).record(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    /** Sorted copy of all counters, gauges and timings. */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> out = new TreeMap<>();
+        counters.forEach((k, v) -> out.put(k, v.sum()));
+        out.putAll(gauges);
+        timings.forEach((k, v) -> v.writeTo(k, out));
+        return out;
+    }
+
+    private static class Timing {
+        private long count;
+        private long totalMs;
+        private long maxMs;
+        private long lastMs;
+
+        synchronized void record(long ms) {
+            count++;
+            totalMs += ms;
+            maxMs = Math.max(maxMs, ms);
+            lastMs = ms;
+        }
+
+        synchronized void writeTo(String name, Map<String, Object> out) {
+            out.put(name + ".count", count);
+            out.put(name + ".totalMs", totalMs);
+            out.put(name + ".maxMs", maxMs);
+            out.put(name + ".lastMs", lastMs);
+        }
+    }
+}
@@ -2,7 +2,10 @@ package com.husky.spring_portfolio.mvc.chatLLM;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Structured remediation plan: target format, compliance, issues, and actions.
@@ -75,4 +78,25 @@ public class RemediationPlan {
         plan.setActions(new ArrayList<>());
         return plan;
     }
+
+    /**
+     * Combine chunk-level audits into one plan. Issues with the same criterion and description (case and
+     * whitespace ignored) are kept once, in first-seen order.
+     */
+    public static RemediationPlan mergeParsedAudits(List<RemediationPlan> plans) {
+        Map<String, RemediationIssue> unique = new LinkedHashMap<>();
+        for (RemediationPlan plan : plans) {
+            if (plan == null || plan.getIssues() == null) {
+                continue;
+            }
+            for (RemediationIssue issue : plan.getIssues()) {
+                unique.putIfAbsent(normalize(issue.getCriterion()) + "|" + normalize(issue.getDescription()), issue);
+            }
+        }
+        return forParsedAudit(new ArrayList<>(unique.values()));
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,115 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Shrinks images before they are sent to the vision model. OpenAI scales high-detail images to fit
+ * 2048px and then to 768px on the short side before tiling, so anything larger only inflates the request
+ * body and upload time. Used by both the alt-text pipeline and {@link FineTuningDataBuilder} so training
+ * and production inputs match.
+ */
+public final class VisionImagePreprocessor {
+
+    private VisionImagePreprocessor() {}
+
+    /**
+     * Fill {@link ImageInfo#getVisionImageBytes()} and the sent dimensions. Images already within bounds are
+     * sent as extracted (no decode).
+     *
+     * @param maxEdge longest side in pixels; 0 or negative = no limit
+     * @param maxShortEdge shortest side in pixels; 0 or negative = no limit
+     * @param jpegQuality 0-1 to write downscaled opaque images as JPEG at that quality; 0 = keep PNG
+     */
+    public static void prepare(ImageInfo image, int maxEdge, int maxShortEdge, float jpegQuality) throws IOException {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        double scale = scaleFor(width, height, maxEdge, maxShortEdge);
+        if (scale >= 1.0) {
+            image.setVisionImageBytes(image.getImageBytes());
+            image.setVisionImageFormat(image.getImageFormat());
+            image.setSentWidth(width);
+            image.setSentHeight(height);
+            return;
+        }
+
+        BufferedImage source = ImageIO.read(new ByteArrayInputStream(image.getImageBytes()));
+        if (source == null) {
+            throw new IOException("Unreadable image " + image.getImageId());
+        }
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage scaled = downscale(source, targetWidth, targetHeight);
+
+        boolean asJpeg = jpegQuality > 0 && !scaled.getColorModel().hasAlpha();
+        image.setVisionImageBytes(asJpeg ? writeJpeg(scaled, jpegQuality) : writePng(scaled));
+        image.setVisionImageFormat(asJpeg ? "JPEG" : "PNG");
+        image.setSentWidth(targetWidth);
+        image.setSentHeight(targetHeight);
+    }
+
+    static double scaleFor(int width, int height, int maxEdge, int maxShortEdge) {
+        double scale = 1.0;
+        int longSide = Math.max(width, height);
+        int shortSide = Math.min(width, height);
+        if (maxEdge > 0 && longSide > maxEdge) {
+            scale = Math.min(scale, (double) maxEdge / longSide);
+        }
+        if (maxShortEdge > 0 && shortSide > maxShortEdge) {
+            scale = Math.min(scale, (double) maxShortEdge / shortSide);
+        }
+        return scale;
+    }
+
+    /**
+     * Bilinear halving until within 2x of the target, then one bilinear step: close to area-averaging quality
+     * at a fraction of the cost of {@code Image.SCALE_SMOOTH}.
+     */
+    private static BufferedImage downscale(BufferedImage source, int targetWidth, int targetHeight) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int w = source.getWidth();
+        int h = source.getHeight();
+        do {
+            w = Math.max(targetWidth, w / 2);
+            h = Math.max(targetHeight, h / 2);
+            BufferedImage next = new BufferedImage(w, h, type);
+            Graphics2D g = next.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(current, 0, 0, w, h, null);
+            g.dispose();
+            current = next;
+        } while (w != targetWidth || h != targetHeight);
+        return current;
+    }
+
+    private static byte[] writePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        ImageIO.write(image, "PNG", baos);
+        return baos.toByteArray();
+    }
+
+    private static byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(Math.min(1f, quality));
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * A single-message vision request (text and image parts) written by a streaming generator. Images are
+ * base64-encoded in small chunks straight into the request stream from the vision bytes
+ * ({@link VisionImagePreprocessor}), so no data-URL or whole-body string is ever built.
+ */
+public final class VisionRequestBody implements LlmClient.JsonBody {
+
+    /** Multiple of 3, so chunks encode without padding. */
+    private static final int BASE64_CHUNK_BYTES = 3 * 4096;
+
+    private final String model;
+    private final int maxTokens;
+    private final List<Object> parts = new ArrayList<>(); // String (text part) or ImageInfo (image part)
+    private int textChars;
+
+    public VisionRequestBody(String model, int maxTokens) {
+        this.model = model;
+        this.maxTokens = maxTokens;
+    }
+
+    public VisionRequestBody text(String text) {
+        String value = text != null ? text : "";
+        parts.add(value);
+        textChars += value.length();
+        return this;
+    }
+
+    public VisionRequestBody image(ImageInfo image) {
+        parts.add(image);
+        return this;
+    }
+
+    /** Characters of text content, for prompt-token estimates. */
+    public int getTextChars() {
+        return textChars;
+    }
+
+    @Override
+    public void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("model", model);
+        generator.writeNumberField("max_tokens", maxTokens);
+        generator.writeArrayFieldStart("messages");
+        generator.writeStartObject();
+        generator.writeStringField("role", "user");
+        generator.writeArrayFieldStart("content");
+        for (Object part : parts) {
+            generator.writeStartObject();
+            if (part instanceof ImageInfo) {
+                generator.writeStringField("type", "image_url");
+                generator.writeObjectFieldStart("image_url");
+                generator.writeFieldName("url");
+                writeDataUrl(generator, (ImageInfo) part);
+                generator.writeEndObject();
+            } else {
+                generator.writeStringField("type", "text");
+                generator.writeStringField("text", (String) part);
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.writeEndArray();
+        generator.writeEndObject();
+    }
+
+    /** Same value as {@link ImageInfo#toVisionDataUrl()}, written as a raw JSON string (base64 needs no escaping). */
+    private static void writeDataUrl(JsonGenerator generator, ImageInfo image) throws IOException {
+        byte[] bytes = image.getVisionImageBytes() != null ? image.getVisionImageBytes() : image.getImageBytes();
+        generator.writeRawValue("\"data:" + image.getVisionMimeType() + ";base64,");
+        if (bytes != null) {
+            Base64.Encoder encoder = Base64.getEncoder();
+            char[] chars = new char[BASE64_CHUNK_BYTES / 3 * 4];
+            for (int offset = 0; offset < bytes.length; offset += BASE64_CHUNK_BYTES) {
+                ByteBuffer encoded = encoder.encode(
+                    ByteBuffer.wrap(bytes, offset, Math.min(BASE64_CHUNK_BYTES, bytes.length - offset)));
+                int length = encoded.remaining();
+                for (int i = 0; i < length; i++) {
+                    chars[i] = (char) encoded.get();
+                }
+                generator.writeRaw(chars, 0, length);
+            }
+        }
+        generator.writeRaw('"');
+    }
+}
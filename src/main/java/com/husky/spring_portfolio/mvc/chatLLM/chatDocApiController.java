@@ -1,6 +1,7 @@
 package com.husky.spring_portfolio.mvc.chatLLM;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
@@ -9,30 +10,47 @@ import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @CrossOrigin(origins = {"http://localhost:3000", "http://localhost:4000", "http://localhost:5500", 
                        "http://127.0.0.1:3000", "http://127.0.0.1:4000", "http://127.0.0.1:5500"})
 public class chatDocApiController {
     private final chatDocService documentService;
+    private final PipelineMetrics pipelineMetrics;
+    private final AlteredDocStreamRegistry alteredDocStreams;
+    private final PipelineJobQueue pipelineJobQueue;
+
+    /** Upload mode when the request has no {@code async} parameter. */
+    @Value("${pipeline.upload.async:false}")
+    private boolean asyncUploadByDefault;
 
     @Autowired
-    public chatDocApiController(chatDocService documentService) {
+    public chatDocApiController(chatDocService documentService, PipelineMetrics pipelineMetrics,
+                                AlteredDocStreamRegistry alteredDocStreams, PipelineJobQueue pipelineJobQueue) {
         this.documentService = documentService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.alteredDocStreams = alteredDocStreams;
+        this.pipelineJobQueue = pipelineJobQueue;
     }
 
     /**
      * POST endpoint to upload PDF documents
-     * Accepts multipart/form-data with a file parameter
+     * Accepts multipart/form-data with a file parameter. With {@code async=true} the document is stored and
+     * answered with 202 and its id; poll {@code GET /alteredDocuments/{id}} for {@code pipelineStatus} or
+     * subscribe to {@code /alteredDocuments/{id}/stream}. A synchronous upload whose job is taken over by another
+     * node mid-run is answered the same way.
      */
     @PostMapping("/inputDocuments")
-    public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<?> uploadDocument(@RequestParam("file") MultipartFile file,
+                                            @RequestParam(value = "async", required = false) Boolean async) {
         try {
             // Validate file
             if (file.isEmpty()) {
@@ -47,8 +65,31 @@ public class chatDocApiController {
                 return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
             }
 
-            // Process the PDF document
-            chatDoc document = documentService.processPdfDocument(file);
+            if (async != null ? async : asyncUploadByDefault) {
+                chatDoc document = pipelineJobQueue.submit(file);
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Document accepted for processing");
+                response.put("documentId", document.getId());
+                response.put("filename", document.getOriginalFilename());
+                response.put("pipelineStatus", document.getPipelineStatus());
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/alteredDocuments/" + document.getId())
+                    .body(response);
+            }
+
+            // Process the PDF document (under a leased job, so another node finishes it if this one dies)
+            chatDoc document = pipelineJobQueue.processNow(file);
+            if (document.getOutcomeStatus() == null) {
+                // Lease lost mid-run: another node is finishing the document
+                Map<String, Object> response = new HashMap<>();
+                response.put("message", "Document processing continues on another node");
+                response.put("documentId", document.getId());
+                response.put("filename", document.getOriginalFilename());
+                response.put("pipelineStatus", document.getPipelineStatus());
+                return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/alteredDocuments/" + document.getId())
+                    .body(response);
+            }
             
             Map<String, Object> response = new HashMap<>();
             response.put("message", "Document processed successfully");
@@ -63,6 +104,10 @@ public class chatDocApiController {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
             return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(Map.of("error", "Too many documents in progress; retry later"));
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Failed to process document: " + e.getMessage());
@@ -119,6 +164,38 @@ public class chatDocApiController {
         return new ResponseEntity<>(body, HttpStatus.OK);
     }
 
+    /**
+     * GET endpoint (text/event-stream) relaying Stage 2 HTML as it is generated: {@code delta} events, then
+     * {@code done} or {@code error} ({@code reset} drops a failed partial stream). Documents already finished are
+     * replayed as one delta. Streamed HTML may carry image placeholders; reload the document with
+     * includeHtml=true after {@code done} for the final version.
+     * Live output needs the id before Stage 2 runs, i.e. from an {@code async=true} upload; a synchronous upload
+     * answers after Stage 2, so subscribing with its id only replays the stored result.
+     */
+    @GetMapping(value = "/alteredDocuments/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamAlteredDocument(@PathVariable Long id) {
+        if (alteredDocStreams.isActive(id)) {
+            return ResponseEntity.ok(alteredDocStreams.subscribe(id));
+        }
+        chatDoc document = documentService.getDocumentById(id);
+        if (document == null) {
+            return new ResponseEntity<>(Map.of("error", "Document not found"), HttpStatus.NOT_FOUND);
+        }
+        if ("FAILED".equals(document.getPipelineStatus())) {
+            return new ResponseEntity<>(Map.of("error", "Document processing failed"), HttpStatus.CONFLICT);
+        }
+        if (document.getAlteredContent() != null) {
+            return ResponseEntity.ok(AlteredDocStreamRegistry.replay(document.getAlteredContent()));
+        }
+        SseEmitter emitter = alteredDocStreams.subscribe(id);
+        // The pipeline may have finished between the lookup and subscribing.
+        chatDoc latest = documentService.getDocumentById(id);
+        if (latest != null && latest.getAlteredContent() != null) {
+            alteredDocStreams.complete(id, latest.getAlteredContent());
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
     /**
      * PATCH endpoint to set human compliance label (overrides heuristic).
      * value=COMPLIANT|NONCOMPLIANT|UNKNOWN
@@ -167,6 +244,14 @@ public class chatDocApiController {
         }
     }
 
+    /**
+     * GET endpoint to return pipeline counters and gauges (e.g. PDF memory mode per document).
+     */
+    @GetMapping("/pipeline/metrics")
+    public ResponseEntity<?> getPipelineMetrics() {
+        return new ResponseEntity<>(pipelineMetrics.snapshot(), HttpStatus.OK);
+    }
+
     /**
      * GET endpoint to return JSON Schema for RemediationPlan (for validation / parsing).
      */
@@ -4,42 +4,43 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Qualifier;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.core.type.TypeReference;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.ByteArrayOutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.stream.Collectors;
-import java.util.Base64;
+import java.util.stream.Stream;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
-
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDResources;
-import org.apache.pdfbox.pdmodel.graphics.PDXObject;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
-import org.apache.pdfbox.cos.COSName;
-
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
+import java.net.http.HttpTimeoutException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -57,16 +58,76 @@ public class chatDocService {
 
     private static final String STAGE2_USER_PREFIX = "Apply the following corrections summary to the provided HTML document and return a fully WCAG 2.1 Level AA conformant version of the document.\n\n";
 
+    private static final String STAGE2_PATCH_SYSTEM_PROMPT = "You are an expert in web accessibility and WCAG 2.1 Level AA compliance for government HTML documents. When given a non-compliant HTML document and a corrections summary identifying all accessibility violations, return the edits that apply every correction and nothing else. Output ONLY a JSON array of objects with two string keys: \"find\" (an exact substring of the input document that occurs exactly once, including enough surrounding markup to be unique) and \"replace\" (its corrected replacement). Edits must not overlap. Keep every image src attribute exactly as given.";
+
+    private static final int ALT_TEXT_MAX_TOKENS = 500;
+
+    /** {@code src="img_3_0"} as emitted by {@link #convertToRawHtml} in placeholder mode. */
+    private static final Pattern IMAGE_PLACEHOLDER_SRC = Pattern.compile("(src\\s*=\\s*)([\"'])(img_\\d+_\\d+)\\2");
+
     private final chatDocRepository documentRepository;
+    private final ForkJoinPool pdfExtractionPool;
+    private final PipelineMetrics pipelineMetrics;
+    private final LlmClient llmTransport;
+    private final Executor pipelineStageExecutor;
+    private final LlmCircuitBreaker circuitBreaker;
+    private final LlmResponseCache responseCache;
+    private final AlteredDocStreamRegistry alteredDocStreams;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final HttpClient openaiHttpClient = HttpClient.newBuilder().build();
+    /** Caps concurrent vision requests across all uploads (provider concurrency / rate limits). */
+    private final Semaphore altTextPermits;
     
     @Value("${app.upload.dir:volumes/uploads}")
     private String uploadDir;
     
-    @Value("${openai.api.key:}")
-    private String openaiApiKey;
-    
+    /** Pages per extraction worker; documents at or below this size are extracted on the calling thread. 0 = never split. */
+    @Value("${pdf.extraction.chunk-pages:25}")
+    private int extractionChunkPages;
+
+    /** Heap budget per document once it is above the spill threshold; 0 = scratch files only. */
+    @Value("${pdf.memory.max-main-bytes:67108864}")
+    private long pdfMaxMainMemoryBytes;
+
+    /** PDF file size above which the heap budget applies; negative = always heap-only (PDFBox default). */
+    @Value("${pdf.memory.spill-threshold-bytes:20971520}")
+    private long pdfSpillThresholdBytes;
+
+    @Value("${pdf.memory.temp-dir:}")
+    private String pdfTempDir;
+
+    /** Approximate prompt tokens per Stage 1 request; larger documents are audited in chunks (0 = never split). */
+    @Value("${openai.plan.chunk-tokens:6000}")
+    private int planChunkTokens;
+
+    /**
+     * Stage 1/2 prompts reference images by id instead of inlining base64; Stage 2 output is re-hydrated. Off by
+     * default: the fine-tuned Stage 1/2 models were trained on inline data URLs.
+     */
+    @Value("${openai.prompt.image-placeholders:false}")
+    private boolean promptImagePlaceholders;
+
+    /** Longest / shortest side sent to the vision model; larger images are downscaled first (0 = no limit). */
+    @Value("${openai.vision.max-edge:2048}")
+    private int visionMaxEdge;
+
+    @Value("${openai.vision.max-short-edge:768}")
+    private int visionMaxShortEdge;
+
+    /** JPEG quality (0-1) for downscaled opaque images; 0 keeps PNG. */
+    @Value("${openai.vision.jpeg-quality:0.85}")
+    private float visionJpegQuality;
+
+    /**
+     * Up to this many images from one page share a vision request (1 = one request per image, the default: the
+     * fine-tuned alt-text model only knows single-image prompts).
+     */
+    @Value("${openai.vision.batch.max-images:1}")
+    private int visionBatchMaxImages;
+
+    /** Estimated prompt tokens (images plus context) per batched vision request; larger groups are split. */
+    @Value("${openai.vision.batch.max-tokens:6000}")
+    private int visionBatchMaxTokens;
+
     /**
      * Default OpenAI model (fallback). Used for general calls and for per-image vision alt-text
      * when no separate vision override exists.
@@ -82,6 +143,21 @@ public class chatDocService {
     @Value("${openai.alt.model:}")
     private String openaiAltModel;
 
+    /**
+     * Stage 2 output form: {@code full} (the fine-tuned format: the whole corrected document) or {@code patch}
+     * (targeted find/replace edits applied by {@link HtmlPatchApplier}, falling back to {@code full}).
+     */
+    @Value("${openai.alt.mode:full}")
+    private String alteredDocMode;
+
+    /** Full-mode Stage 2 is requested with {@code stream: true} and relayed via {@link AlteredDocStreamRegistry}. */
+    @Value("${openai.alt.stream:true}")
+    private boolean alteredDocStreaming;
+
+    /** Upper bound for reading a streamed Stage 2 body, on top of the transport's wait for its headers. */
+    @Value("${openai.timeout.altered-doc-ms:180000}")
+    private long alteredDocTimeoutMs;
+
     /**
      * Optional fine-tuned model for <strong>stage 1</strong>: unaltered document context
      * (text, report, image summaries) → structured {@link RemediationPlan}.
@@ -110,59 +186,151 @@ public class chatDocService {
     }
 
     @Autowired
-    public chatDocService(chatDocRepository documentRepository) {
+    public chatDocService(chatDocRepository documentRepository,
+                          @Qualifier("pdfExtractionPool") ForkJoinPool pdfExtractionPool,
+                          @Qualifier("pipelineStageExecutor") Executor pipelineStageExecutor,
+                          PipelineMetrics pipelineMetrics,
+                          LlmClient llmTransport,
+                          LlmCircuitBreaker circuitBreaker,
+                          LlmResponseCache responseCache,
+                          AlteredDocStreamRegistry alteredDocStreams,
+                          @Value("${openai.alt-text.concurrency:4}") int altTextConcurrency) {
         this.documentRepository = documentRepository;
+        this.pdfExtractionPool = pdfExtractionPool;
+        this.pipelineStageExecutor = pipelineStageExecutor;
+        this.pipelineMetrics = pipelineMetrics;
+        this.llmTransport = llmTransport;
+        this.circuitBreaker = circuitBreaker;
+        this.responseCache = responseCache;
+        this.alteredDocStreams = alteredDocStreams;
+        this.altTextPermits = new Semaphore(Math.max(1, altTextConcurrency));
+    }
+
+    /** Heap-only below the spill threshold; above it, a capped heap cache that spills to scratch files. */
+    private PdfMemoryPolicy pdfMemoryPolicy() {
+        File tempDir = pdfTempDir != null && !pdfTempDir.isBlank() ? new File(pdfTempDir.trim()) : null;
+        return new PdfMemoryPolicy(pdfMaxMainMemoryBytes, pdfSpillThresholdBytes, tempDir);
     }
 
     /**
      * Process PDF file: extract images, generate alt text, create accessibility report
      */
     public chatDoc processPdfDocument(MultipartFile file) throws IOException {
+        return runPipeline(storeUpload(file));
+    }
+
+    /** Save the PDF under {@code app.upload.dir} and persist its {@code UPLOADED} document. */
+    public chatDoc storeUpload(MultipartFile file) throws IOException {
         String filename = file.getOriginalFilename();
         if (filename == null || !filename.toLowerCase().endsWith(".pdf")) {
             throw new IllegalArgumentException("File must be a PDF");
         }
 
-        // Read PDF bytes
-        byte[] pdfBytes = file.getBytes();
-        
-        // Save original PDF
-        Path uploadPath = Paths.get(uploadDir);
+        // Stream the upload straight into the upload dir (no full byte[] copy on the heap).
+        // Absolute target: Part.write resolves relative paths against the multipart temp location.
+        Path uploadPath = Paths.get(uploadDir).toAbsolutePath();
         Files.createDirectories(uploadPath);
-        String originalPdfPath = uploadPath.resolve(filename).toString();
-        Files.write(Paths.get(originalPdfPath), pdfBytes);
-        
+        Path pdfPath = uploadPath.resolve(Paths.get(filename).getFileName().toString());
+        file.transferTo(pdfPath);
+        String originalPdfPath = pdfPath.toString();
+
         // Create document entity
         chatDoc document = new chatDoc();
         document.setOriginalFilename(filename);
         document.setOriginalPdfPath(originalPdfPath);
         document.setPipelineStatus("UPLOADED");
         document.setTimestamp(LocalDateTime.now());
-        document = documentRepository.save(document);
+        return documentRepository.save(document);
+    }
 
+    /**
+     * Run every stage for an {@code UPLOADED} document; on failure it is saved as {@code FAILED} and rethrown,
+     * and stages still pending are cancelled so the other branch does not keep spending LLM calls.
+     */
+    public chatDoc runPipeline(chatDoc document) throws IOException {
+        return runPipeline(document, true, new CompletableFuture<>());
+    }
+
+    /**
+     * {@link #runPipeline(chatDoc)} for a job queue. When {@code lastAttempt} is false a failure is not final: the
+     * document is not marked {@code FAILED} and Stage 2 subscribers get {@code reset} rather than {@code error},
+     * staying attached for the retry. Once {@code ownershipLost} completes, pending stages are cancelled and the
+     * run stops before its next save; the document is then left to its new owner. Either way an
+     * {@link IOException} is thrown.
+     */
+    public chatDoc runPipeline(chatDoc document, boolean lastAttempt, CompletableFuture<?> ownershipLost)
+            throws IOException {
+        Path pdfPath = Paths.get(document.getOriginalPdfPath());
+        long pipelineStart = System.nanoTime();
+        List<CompletableFuture<?>> stageFutures = new ArrayList<>();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
         try {
-            // Step 1: Extract text and images
+            // Step 1: Parse the PDF once; text, images, tagging and metadata feed every later stage
+            long extractStart = System.nanoTime();
+            PdfAnalysis analysis = PdfAnalysis.analyze(pdfPath, pdfExtractionPool, extractionChunkPages,
+                pdfMemoryPolicy());
+            pipelineMetrics.recordTiming("pipeline.stage.extract", System.nanoTime() - extractStart);
+            pipelineMetrics.increment("pdf.memory.mode." + analysis.getMemoryMode());
+            pipelineMetrics.setGauge("pdf.memory.lastMode", analysis.getMemoryMode().name());
             document.setPipelineStatus("EXTRACTED");
-            String originalContent = extractTextFromPdf(pdfBytes);
+            String originalContent = analysis.getFullText();
             document.setOriginalContent(originalContent);
-            document = documentRepository.save(document);
+            document = saveOwned(document, ownershipLost);
+
+            List<ImageInfo> images = analysis.getImages();
+            final chatDoc extracted = document;
+
+            // Step 2: RAW HTML with intentional a11y errors (matches training patterns) for Stage 1 / Stage 2 input.
+            String rawHtml = convertToRawHtml(originalContent, images, promptImagePlaceholders);
+
+            log.info("Using plan model: {}", modelForPlanGeneration());
+            if (modelForAlteredDocumentGeneration() != null) {
+                log.info("Using altered-doc model: {}", modelForAlteredDocumentGeneration());
+            } else {
+                log.info("No altered-doc model configured; Stage 2 skipped, will use createAccessibleHtmlFromPlan if plan exists");
+            }
 
-            List<ImageInfo> images = extractImagesFromPdf(pdfBytes, originalContent);
+            // Step 3: stage graph. Alt text → report and Stage 1 → Stage 2 run side by side; only the deterministic
+            // fallback needs both branches. Workers compute; this thread alone touches the repository.
+            CompletableFuture<List<AltTextResult>> altTextFuture = images.isEmpty()
+                ? CompletableFuture.completedFuture(new ArrayList<>())
+                : runStage("altText", () -> generateAltTextForImages(images));
+            CompletableFuture<AccessibilityReport> reportFuture = altTextFuture.thenApplyAsync(
+                altTexts -> timed("report", () -> generateAccessibilityReport(extracted, images, altTexts, analysis.isTagged())),
+                pipelineStageExecutor);
+            // Stage 1: rawHtml → remediation plan (fine-tuned model), then Stage 2 as soon as the plan is ready.
+            CompletableFuture<RemediationPlan> planFuture = runStage("plan",
+                () -> generateRemediationPlanWithModel(rawHtml));
+            CompletableFuture<String> stage2Future = planFuture.thenApplyAsync(
+                plan -> plan == null ? null : timed("alteredDoc",
+                    () -> generateAlteredDocumentWithModel(extracted.getId(), rawHtml, images, plan)),
+                pipelineStageExecutor);
+            stageFutures.addAll(List.of(altTextFuture, reportFuture, planFuture, stage2Future));
+            // Fail fast: the first stage to fail cancels the rest, so this thread is not left joining the other branch.
+            for (CompletableFuture<?> stage : stageFutures) {
+                stage.whenComplete((ignored, error) -> {
+                    Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                    if (cause != null && !(cause instanceof CancellationException)) {
+                        firstFailure.compareAndSet(null, cause);
+                        stageFutures.forEach(future -> future.cancel(true));
+                    }
+                });
+            }
+            ownershipLost.whenComplete((ignored, error) -> stageFutures.forEach(future -> future.cancel(true)));
 
-            // Step 2: Generate alt text for images
-            List<AltTextResult> altTextResults = new ArrayList<>();
+            // Step 4: persist each branch result as it completes
+            List<AltTextResult> altTextResults = altTextFuture.join();
             if (!images.isEmpty()) {
                 document.setPipelineStatus("ALT_DONE");
-                altTextResults = generateAltTextForImages(images);
                 document.setAltTextJson(objectMapper.writeValueAsString(altTextResults));
-                document = documentRepository.save(document);
+                document = saveOwned(document, ownershipLost);
             }
 
-            // Step 3: Generate accessibility report
-            AccessibilityReport report = generateAccessibilityReport(document, images);
+            AccessibilityReport report = reportFuture.join();
             document.setAccessibilityReportJson(objectMapper.writeValueAsString(report));
             document.setPipelineStatus("REPORT_DONE");
-            document = documentRepository.save(document);
+            document = saveOwned(document, ownershipLost);
 
             // Compliance label from report (heuristic). Set labelSource HEURISTIC only if not already HUMAN.
             document.setComplianceLabel(report.getErrors() > 0 ? "NONCOMPLIANT" : "COMPLIANT");
@@ -170,24 +338,11 @@ public class chatDocService {
                 document.setLabelSource("HEURISTIC");
             }
 
-            // 4. RAW HTML with intentional a11y errors (matches training patterns) for Stage 1 / Stage 2 input.
-            String rawHtml = convertToRawHtml(originalContent, images);
-
-            log.info("Using plan model: {}", modelForPlanGeneration());
-            if (modelForAlteredDocumentGeneration() != null) {
-                log.info("Using altered-doc model: {}", modelForAlteredDocumentGeneration());
-            } else {
-                log.info("No altered-doc model configured; Stage 2 skipped, will use createAccessibleHtmlFromPlan if plan exists");
-            }
-
-            // 5. Stage 1: rawHtml → remediation plan (fine-tuned model).
-            RemediationPlan plan = generateRemediationPlanWithModel(document, report, images, rawHtml);
-
+            RemediationPlan plan = planFuture.join();
             String accessibleHtml;
             if (plan != null) {
                 document.setRemediationPlanJson(objectMapper.writeValueAsString(plan));
-                String llmHtml = generateAlteredDocumentWithModel(
-                    rawHtml, images, altTextResults, plan);
+                String llmHtml = stage2Future.join();
                 if (llmHtml != null && !llmHtml.isBlank()) {
                     accessibleHtml = llmHtml;
                 } else {
@@ -199,7 +354,8 @@ public class chatDocService {
             }
             document.setAlteredContent(accessibleHtml);
             document.setPipelineStatus("HTML_DONE");
-            document = documentRepository.save(document);
+            document = saveOwned(document, ownershipLost);
+            alteredDocStreams.complete(document.getId(), accessibleHtml);
 
             // Outcome: NEEDS_REVIEW | REMEDIATED_WITH_WARNINGS | REMEDIATED
             int errors = report.getErrors();
@@ -215,134 +371,344 @@ public class chatDocService {
             document.setOutcomeStatus(outcome);
             document.setStatus(outcome);
 
-            return documentRepository.save(document);
+            pipelineMetrics.recordTiming("pipeline.total", System.nanoTime() - pipelineStart);
+            return saveOwned(document, ownershipLost);
 
         } catch (Exception e) {
+            // Dependent stages that have not started never will; one already running finishes unobserved.
+            stageFutures.forEach(future -> future.cancel(true));
+            if (ownershipLost.isDone()) {
+                alteredDocStreams.handOff(document.getId());
+                throw new IOException("Pipeline run for document " + document.getId() + " abandoned: ownership lost");
+            }
+            Throwable failure = firstFailure.get() != null ? firstFailure.get() : e;
+            Throwable cause = failure instanceof CompletionException && failure.getCause() != null
+                ? failure.getCause() : failure;
+            if (!lastAttempt) {
+                alteredDocStreams.discard(document.getId());
+                throw new IOException("Failed to process PDF (will retry): " + cause.getMessage(), cause);
+            }
+            alteredDocStreams.fail(document.getId(), cause.getMessage());
             document.setPipelineStatus("FAILED");
             document.setOutcomeStatus("FAILED");
             document.setStatus("FAILED");
             documentRepository.save(document);
-            throw new IOException("Failed to process PDF: " + e.getMessage(), e);
+            throw new IOException("Failed to process PDF: " + cause.getMessage(), cause);
         }
     }
 
-    /**
-     * Extract text content from PDF
-     */
-    private String extractTextFromPdf(byte[] pdfBytes) throws IOException {
-        try (PDDocument document = Loader.loadPDF(pdfBytes)) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            return stripper.getText(document);
+    /** Save unless another node took the document over; a lost run must not overwrite the new owner's progress. */
+    private chatDoc saveOwned(chatDoc document, CompletableFuture<?> ownershipLost) {
+        if (ownershipLost.isDone()) {
+            throw new CancellationException("Ownership of document " + document.getId() + " lost");
         }
+        return documentRepository.save(document);
     }
 
-    /**
-     * Extract images from PDF with context (page number, bounding box, nearby text)
-     */
-    private List<ImageInfo> extractImagesFromPdf(byte[] pdfBytes, String fullText) throws IOException {
-        List<ImageInfo> images = new ArrayList<>();
-        
-        try (PDDocument document = Loader.loadPDF(pdfBytes)) {
-            int pageNum = 0;
-            for (PDPage page : document.getPages()) {
-                pageNum++;
-                PDResources resources = page.getResources();
-                
-                // Extract text from this page for context
-                PDFTextStripper stripper = new PDFTextStripper();
-                stripper.setStartPage(pageNum);
-                stripper.setEndPage(pageNum);
-                String pageText = stripper.getText(document);
-                
-                // Extract images from resources
-                int imageIndex = 0;
-                for (COSName xObjectName : resources.getXObjectNames()) {
-                    PDXObject xObject = resources.getXObject(xObjectName);
-                    if (xObject instanceof PDImageXObject) {
-                        PDImageXObject image = (PDImageXObject) xObject;
-                        
-                        try {
-                            BufferedImage bufferedImage = image.getImage();
-                            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                            ImageIO.write(bufferedImage, "PNG", baos);
-                            byte[] imageBytes = baos.toByteArray();
-                            
-                            ImageInfo imageInfo = new ImageInfo();
-                            imageInfo.setPageNumber(pageNum);
-                            imageInfo.setImageId("img_" + pageNum + "_" + imageIndex);
-                            imageInfo.setImageBytes(imageBytes);
-                            imageInfo.setImageFormat("PNG");
-                            
-                            // Get image position (simplified - PDFBox doesn't always provide this easily)
-                            PDRectangle pageSize = page.getMediaBox();
-                            imageInfo.setX(0); // Would need more complex parsing for exact position
-                            imageInfo.setY(0);
-                            imageInfo.setWidth(bufferedImage.getWidth());
-                            imageInfo.setHeight(bufferedImage.getHeight());
-                            
-                            // Extract context text (nearby text on page)
-                            imageInfo.setContextText(pageText);
-                            
-                            images.add(imageInfo);
-                            imageIndex++;
-                        } catch (Exception e) {
-                            System.err.println("Error extracting image: " + e.getMessage());
-                        }
-                    }
-                }
-            }
+    /** A pipeline step that may throw; run by {@link #runStage} / {@link #timed}. */
+    @FunctionalInterface
+    private interface StageWork<T> {
+        T run() throws Exception;
+    }
+
+    /** Start {@code work} on the stage executor, recording its duration as {@code pipeline.stage.<name>}. */
+    private <T> CompletableFuture<T> runStage(String name, StageWork<T> work) {
+        return CompletableFuture.supplyAsync(() -> timed(name, work), pipelineStageExecutor);
+    }
+
+    private <T> T timed(String name, StageWork<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.run();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        } finally {
+            pipelineMetrics.recordTiming("pipeline.stage." + name, System.nanoTime() - start);
         }
-        
-        return images;
     }
 
     /**
-     * Generate alt text for images using OpenAI API
+     * Generate alt text for images using OpenAI API. Images sharing a {@link ImageInfo#getContentHash()}
+     * (e.g. a logo on every page) get one vision call; the result is copied to each repeat.
+     * Unique images not in {@link LlmResponseCache} are grouped by page into batched requests (see
+     * {@link #planAltTextBatches}); the rest go one per request. Requests are sent concurrently with
+     * {@code sendAsync}; at most {@code openai.alt-text.concurrency} are in flight across all uploads.
+     * Images a batch answer leaves out are retried on their own. Results come back in image order.
      */
     private List<AltTextResult> generateAltTextForImages(List<ImageInfo> images) throws IOException {
-        List<AltTextResult> results = new ArrayList<>();
-        
-        if (openaiApiKey == null || openaiApiKey.isEmpty()) {
+        if (!llmTransport.isConfigured()) {
             return buildPlaceholderAltText(images);
         }
+        if (!circuitBreaker.isCallPermitted(openaiModel)) {
+            log.warn("Circuit open for {}; using placeholder alt text", openaiModel);
+            pipelineMetrics.increment("altText.circuitOpen");
+            return buildPlaceholderAltText(images);
+        }
+
+        Map<String, CompletableFuture<AltTextResult>> requestsByHash = new HashMap<>();
+        Set<String> seen = new HashSet<>();
+        List<ImageInfo> uncached = new ArrayList<>();
+        for (ImageInfo image : images) {
+            String key = dedupKey(image);
+            if (!seen.add(key)) {
+                continue;
+            }
+            AltTextResult cached = cachedAltText(image);
+            if (cached != null) {
+                requestsByHash.put(key, CompletableFuture.completedFuture(cached));
+            } else {
+                uncached.add(image);
+            }
+        }
 
-        HttpClient client = HttpClient.newBuilder().build();
-        String imageBaseUrl = "data:image/png;base64,";
+        List<ImageInfo> singles = new ArrayList<>();
+        List<List<ImageInfo>> batches = planAltTextBatches(uncached, singles);
+        List<CompletableFuture<Map<String, AltTextResult>>> batchRequests = new ArrayList<>();
+        for (List<ImageInfo> batch : batches) {
+            batchRequests.add(requestAltTextBatchAsync(batch));
+        }
+        for (ImageInfo image : singles) {
+            requestsByHash.put(dedupKey(image), requestAltTextAsync(image));
+        }
+        for (int i = 0; i < batches.size(); i++) {
+            Map<String, AltTextResult> answered = batchRequests.get(i).join();
+            for (ImageInfo image : batches.get(i)) {
+                AltTextResult result = answered.get(image.getImageId());
+                if (result != null) {
+                    requestsByHash.put(dedupKey(image), CompletableFuture.completedFuture(result));
+                } else {
+                    pipelineMetrics.increment("altText.batch.fallback");
+                    requestsByHash.put(dedupKey(image), requestAltTextAsync(image));
+                }
+            }
+        }
 
+        List<AltTextResult> results = new ArrayList<>();
+        Map<String, String> firstImageIdByHash = new HashMap<>();
         for (ImageInfo image : images) {
-            try {
-                String base64Image = Base64.getEncoder().encodeToString(image.getImageBytes());
-                String contextText = image.getContextText() != null
-                    ? image.getContextText().substring(0, Math.min(1500, image.getContextText().length()))
-                    : "No surrounding text.";
-                String prompt = buildAltTextPrompt(image.getImageId(), image.getPageNumber(), contextText);
+            String key = dedupKey(image);
+            AltTextResult parsed = requestsByHash.get(key).join();
+            String firstImageId = firstImageIdByHash.putIfAbsent(key, image.getImageId());
+            if (parsed == null) {
+                results.add(placeholderForImage(image));
+            } else if (firstImageId == null) {
+                results.add(parsed);
+            } else {
+                results.add(copyForImage(parsed, image));
+                pipelineMetrics.increment("altText.dedup.reused");
+            }
+        }
+        return results;
+    }
+
+    private static String dedupKey(ImageInfo image) {
+        return image.getContentHash() != null ? image.getContentHash() : image.getImageId();
+    }
+
+    private static String altTextContext(ImageInfo image) {
+        return image.getContextText() != null
+            ? image.getContextText().substring(0, Math.min(1500, image.getContextText().length()))
+            : "No surrounding text.";
+    }
 
-                String requestBody;
+    /** Request parameters for alt-text cache keys; {@code content} marks entries holding the answer text only. */
+    private String altTextCacheParams(int maxTokens) {
+        return "content;max_tokens=" + maxTokens + ";vision=" + visionMaxEdge + "/" + visionMaxShortEdge + "/" + visionJpegQuality;
+    }
+
+    /** Single-image cache key; null for images without a content hash. */
+    private String altTextCacheKey(ImageInfo image) {
+        if (image.getContentHash() == null) {
+            return null;
+        }
+        String prompt = buildAltTextPrompt(image.getImageId(), image.getPageNumber(), altTextContext(image));
+        return LlmResponseCache.key(openaiModel, null, prompt, List.of(image.getContentHash()),
+            altTextCacheParams(ALT_TEXT_MAX_TOKENS));
+    }
+
+    /** Alt text for an image described with the same prompt before, or null. */
+    private AltTextResult cachedAltText(ImageInfo image) {
+        String cacheKey = altTextCacheKey(image);
+        if (cacheKey == null) {
+            return null;
+        }
+        return responseCache.get(cacheKey, LlmClient.Stage.ALT_TEXT)
+            .map(content -> parseAltTextContent(content, image.getImageId()))
+            .orElse(null);
+    }
+
+    /**
+     * Group images from the same page into batches of at most {@code openai.vision.batch.max-images} images and
+     * {@code openai.vision.batch.max-tokens} estimated prompt tokens. Images that end up alone (single-image
+     * pages, split remainders, unreadable images) are added to {@code singles}.
+     */
+    private List<List<ImageInfo>> planAltTextBatches(List<ImageInfo> images, List<ImageInfo> singles) {
+        List<List<ImageInfo>> batches = new ArrayList<>();
+        if (visionBatchMaxImages <= 1) {
+            singles.addAll(images);
+            return batches;
+        }
+        Map<Integer, List<ImageInfo>> byPage = new LinkedHashMap<>();
+        for (ImageInfo image : images) {
+            byPage.computeIfAbsent(image.getPageNumber(), page -> new ArrayList<>()).add(image);
+        }
+        for (List<ImageInfo> page : byPage.values()) {
+            if (page.size() == 1) {
+                singles.addAll(page);
+                continue;
+            }
+            List<ImageInfo> batch = new ArrayList<>();
+            int batchTokens = 0;
+            for (ImageInfo image : page) {
+                int tokens;
                 try {
-                    requestBody = buildOpenAIVisionRequest(prompt, imageBaseUrl + base64Image);
+                    VisionImagePreprocessor.prepare(image, visionMaxEdge, visionMaxShortEdge, visionJpegQuality);
+                    tokens = LlmRateLimiter.estimateImageTokens(image.getSentWidth(), image.getSentHeight())
+                        + LlmRateLimiter.estimateTextTokens(altTextContext(image).length());
                 } catch (Exception e) {
-                    results.add(placeholderForImage(image));
+                    singles.add(image);
                     continue;
                 }
-                HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.openai.com/v1/chat/completions"))
-                    .header("Authorization", "Bearer " + openaiApiKey)
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(requestBody, StandardCharsets.UTF_8))
-                    .build();
-
-                HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+                boolean full = batch.size() >= visionBatchMaxImages
+                    || (visionBatchMaxTokens > 0 && batchTokens + tokens > visionBatchMaxTokens);
+                if (!batch.isEmpty() && full) {
+                    addBatch(batch, batches, singles);
+                    batch = new ArrayList<>();
+                    batchTokens = 0;
+                }
+                batch.add(image);
+                batchTokens += tokens;
+            }
+            addBatch(batch, batches, singles);
+        }
+        return batches;
+    }
+
+    private static void addBatch(List<ImageInfo> batch, List<List<ImageInfo>> batches, List<ImageInfo> singles) {
+        if (batch.size() == 1) {
+            singles.addAll(batch);
+        } else if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+    }
+
+    /**
+     * One vision request for several images from the same page ({@link #planAltTextBatches} has already
+     * prepared them). The returned map holds an entry per image the answer covered, keyed by imageId; it is
+     * empty on any failure so every image falls back to {@link #requestAltTextAsync}.
+     */
+    private CompletableFuture<Map<String, AltTextResult>> requestAltTextBatchAsync(List<ImageInfo> batch) {
+        String prompt = buildBatchAltTextPrompt(batch.get(0).getPageNumber(), batch.size());
+        int maxTokens = ALT_TEXT_MAX_TOKENS * batch.size();
+        VisionRequestBody requestBody = new VisionRequestBody(openaiModel, maxTokens).text(prompt);
+        List<String> hashes = new ArrayList<>();
+        StringBuilder promptText = new StringBuilder(prompt);
+        int imageTokens = 0;
+        for (ImageInfo image : batch) {
+            String imageText = "image_id: " + image.getImageId() + "\nContext from document:\n" + altTextContext(image);
+            requestBody.text(imageText).image(image);
+            promptText.append('\n').append(imageText);
+            hashes.add(image.getContentHash());
+            imageTokens += LlmRateLimiter.estimateImageTokens(image.getSentWidth(), image.getSentHeight());
+        }
+        String cacheKey = hashes.contains(null) ? null
+            : LlmResponseCache.key(openaiModel, null, promptText.toString(), hashes, altTextCacheParams(maxTokens));
+        if (cacheKey != null) {
+            Map<String, AltTextResult> cached = responseCache.get(cacheKey, LlmClient.Stage.ALT_TEXT)
+                .map(content -> parseBatchAltTextContent(content, batch))
+                .orElse(null);
+            if (cached != null && cached.size() == batch.size()) {
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        try {
+            altTextPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        pipelineMetrics.increment("altText.batch.requests");
+        pipelineMetrics.add("altText.batch.images", batch.size());
+        int estimatedTokens = LlmRateLimiter.estimateTextTokens(requestBody.getTextChars()) + imageTokens + maxTokens;
+        CompletableFuture<HttpResponse<ChatCompletionResponse>> sent;
+        try {
+            sent = llmTransport.postChatCompletionAsync(LlmClient.Stage.ALT_TEXT, openaiModel, estimatedTokens,
+                requestBody);
+        } catch (RuntimeException e) {
+            altTextPermits.release(); // no future to release it on completion
+            log.warn("Batched vision request for page {} not sent: {}", batch.get(0).getPageNumber(), e.getMessage());
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        return sent
+            .whenComplete((response, error) -> altTextPermits.release())
+            .thenApply(response -> {
                 if (response.statusCode() != 200) {
-                    results.add(placeholderForImage(image));
-                    continue;
+                    return Map.<String, AltTextResult>of();
+                }
+                String content = response.body().getContent();
+                Map<String, AltTextResult> parsed = parseBatchAltTextContent(content, batch);
+                if (parsed.size() == batch.size() && cacheKey != null) {
+                    responseCache.put(cacheKey, LlmClient.Stage.ALT_TEXT, openaiModel, content);
                 }
-                AltTextResult parsed = parseAltTextResponse(response.body(), image.getImageId());
-                results.add(parsed != null ? parsed : placeholderForImage(image));
+                return parsed;
+            })
+            .exceptionally(error -> Map.of());
+    }
+
+    /**
+     * Start one vision request. Blocks only while {@link #altTextPermits} are exhausted; the returned future
+     * completes with null on any failure so callers fall back to {@link #placeholderForImage}. Successful
+     * answers are stored in {@link LlmResponseCache} for {@link #cachedAltText}.
+     */
+    private CompletableFuture<AltTextResult> requestAltTextAsync(ImageInfo image) {
+        String prompt = buildAltTextPrompt(image.getImageId(), image.getPageNumber(), altTextContext(image));
+        String cacheKey = altTextCacheKey(image);
+
+        if (image.getVisionImageBytes() == null) { // batch fallbacks were prepared by planAltTextBatches
+            try {
+                VisionImagePreprocessor.prepare(image, visionMaxEdge, visionMaxShortEdge, visionJpegQuality);
             } catch (Exception e) {
-                results.add(placeholderForImage(image));
+                return CompletableFuture.completedFuture(null);
             }
         }
-        return results;
+        // Per-image alt text uses the default model (vision-capable). Plan/altered stages use
+        // openai.plan.model / openai.alt.model via their own helpers.
+        VisionRequestBody requestBody = new VisionRequestBody(openaiModel, ALT_TEXT_MAX_TOKENS).text(prompt).image(image);
+        try {
+            altTextPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture(null);
+        }
+        int estimatedTokens = LlmRateLimiter.estimateTextTokens(requestBody.getTextChars())
+            + LlmRateLimiter.estimateImageTokens(image.getSentWidth(), image.getSentHeight())
+            + ALT_TEXT_MAX_TOKENS;
+        CompletableFuture<HttpResponse<ChatCompletionResponse>> sent;
+        try {
+            sent = llmTransport.postChatCompletionAsync(LlmClient.Stage.ALT_TEXT, openaiModel, estimatedTokens,
+                requestBody);
+        } catch (RuntimeException e) {
+            altTextPermits.release(); // no future to release it on completion
+            log.warn("Vision request for {} not sent: {}", image.getImageId(), e.getMessage());
+            return CompletableFuture.completedFuture(null);
+        }
+        return sent
+            .whenComplete((response, error) -> altTextPermits.release())
+            .thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    return null;
+                }
+                String content = response.body().getContent();
+                AltTextResult parsed = parseAltTextContent(content, image.getImageId());
+                if (parsed != null && cacheKey != null) {
+                    responseCache.put(cacheKey, LlmClient.Stage.ALT_TEXT, openaiModel, content);
+                }
+                return parsed;
+            })
+            .exceptionally(error -> null);
     }
 
     private static String buildAltTextPrompt(String imageId, int pageNumber, String contextText) {
@@ -357,30 +723,23 @@ public class chatDocService {
             + "Context from document:\n" + contextText;
     }
 
-    private String buildOpenAIVisionRequest(String prompt, String imageDataUrl) throws IOException {
-        Map<String, Object> message = new HashMap<>();
-        message.put("role", "user");
-        List<Map<String, Object>> content = new ArrayList<>();
-        content.add(Map.of("type", "text", "text", prompt != null ? prompt : ""));
-        content.add(Map.of("type", "image_url", "image_url", Map.of("url", imageDataUrl != null ? imageDataUrl : "")));
-        message.put("content", content);
-        Map<String, Object> body = new HashMap<>();
-        // Per-image alt text uses the default model (vision-capable). Plan/altered stages use
-        // openai.plan.model / openai.alt.model via their own helpers.
-        body.put("model", openaiModel);
-        body.put("max_tokens", 500);
-        body.put("messages", List.of(message));
-        return objectMapper.writeValueAsString(body);
+    /** Shared instructions of a batched request; each image follows with its own image_id and context. */
+    private static String buildBatchAltTextPrompt(int pageNumber, int imageCount) {
+        return "You are an accessibility expert. The following " + imageCount + " images are from page "
+            + pageNumber + " of a PDF; each is preceded by its image_id and the text around it. "
+            + "Provide alt text for every image. Use the surrounding context to describe each image accurately. "
+            + "Never repeat text that is already in the context. "
+            + "Respond with ONLY a JSON array, no other text, with one object per image and these exact keys: "
+            + "\"image_id\" (string, exactly as given), \"decorative\" (boolean), "
+            + "\"alt\" (string, short 1-sentence description), "
+            + "\"longdesc\" (string, extended description for charts/diagrams or empty string), "
+            + "\"confidence\" (number 0-1), \"needs_human_review\" (boolean). "
+            + "If an image is purely decorative, set decorative to true and alt to empty string.";
     }
 
-    private AltTextResult parseAltTextResponse(String responseBody, String imageId) {
+    /** Parse the model's answer ({@link ChatCompletionResponse#getContent()}) to a single-image request. */
+    private AltTextResult parseAltTextContent(String content, String imageId) {
         try {
-            Map<?, ?> root = objectMapper.readValue(responseBody, Map.class);
-            List<?> choices = (List<?>) root.get("choices");
-            if (choices == null || choices.isEmpty()) return null;
-            Map<?, ?> choice = (Map<?, ?>) choices.get(0);
-            Map<?, ?> message = (Map<?, ?>) choice.get("message");
-            String content = (String) message.get("content");
             if (content == null) return null;
             content = content.trim();
             if (content.startsWith("```")) {
@@ -396,6 +755,36 @@ public class chatDocService {
         }
     }
 
+    /**
+     * Parse a batched answer: a JSON array (or {@code {"images": [...]}}) of alt-text objects keyed by
+     * {@code image_id}. Entries for ids outside {@code batch} are ignored; a malformed answer yields an empty map.
+     */
+    private Map<String, AltTextResult> parseBatchAltTextContent(String content, List<ImageInfo> batch) {
+        Map<String, AltTextResult> results = new HashMap<>();
+        try {
+            if (content == null) {
+                return results;
+            }
+            JsonNode entries = objectMapper.readTree(stripMarkdownFences(content));
+            if (entries != null && entries.isObject()) {
+                entries = entries.path("images");
+            }
+            if (entries == null || !entries.isArray()) {
+                return results;
+            }
+            Set<String> expected = batch.stream().map(ImageInfo::getImageId).collect(Collectors.toSet());
+            for (JsonNode entry : entries) {
+                AltTextResult result = objectMapper.treeToValue(entry, AltTextResult.class);
+                if (result.getImageId() != null && expected.contains(result.getImageId())) {
+                    results.putIfAbsent(result.getImageId(), result);
+                }
+            }
+        } catch (Exception e) {
+            results.clear();
+        }
+        return results;
+    }
+
     private List<AltTextResult> buildPlaceholderAltText(List<ImageInfo> images) {
         List<AltTextResult> results = new ArrayList<>();
         for (ImageInfo image : images) {
@@ -404,6 +793,12 @@ public class chatDocService {
         return results;
     }
 
+    /** Same alt text for a repeated image, re-keyed to that occurrence's imageId. */
+    private static AltTextResult copyForImage(AltTextResult source, ImageInfo image) {
+        return new AltTextResult(source.isDecorative(), source.getAlt(), source.getLongdesc(),
+            source.getConfidence(), source.isNeedsHumanReview(), image.getImageId());
+    }
+
     private static AltTextResult placeholderForImage(ImageInfo image) {
         AltTextResult result = new AltTextResult();
         result.setImageId(image.getImageId());
@@ -418,23 +813,13 @@ public class chatDocService {
     }
 
     /**
-     * Generate WCAG-style accessibility report
+     * Generate WCAG-style accessibility report.
+     * {@code isTagged} comes from {@link PdfAnalysis} so the PDF is not re-read from disk here.
      */
-    private AccessibilityReport generateAccessibilityReport(chatDoc document, List<ImageInfo> images) {
+    private AccessibilityReport generateAccessibilityReport(chatDoc document, List<ImageInfo> images,
+                                                            List<AltTextResult> altTextResults, boolean isTagged) {
         List<AccessibilityIssue> issues = new ArrayList<>();
         
-        // Check if PDF is tagged
-        boolean isTagged = false;
-        try {
-            byte[] pdfBytes = Files.readAllBytes(Paths.get(document.getOriginalPdfPath()));
-            try (PDDocument pdfDoc = Loader.loadPDF(pdfBytes)) {
-                // Check for structure tree (simplified check)
-                isTagged = pdfDoc.getDocumentCatalog().getStructureTreeRoot() != null;
-            }
-        } catch (Exception e) {
-            // PDF might not be readable or not tagged
-        }
-        
         if (!isTagged) {
             AccessibilityIssue issue = new AccessibilityIssue();
             issue.setIssue("PDF is not tagged - missing structure tree");
@@ -454,16 +839,6 @@ public class chatDocService {
         }
         
         // Check images for alt text
-        List<AltTextResult> altTextResults = new ArrayList<>();
-        try {
-            if (document.getAltTextJson() != null) {
-                altTextResults = objectMapper.readValue(document.getAltTextJson(), 
-                    new TypeReference<List<AltTextResult>>() {});
-            }
-        } catch (Exception e) {
-            // Alt text JSON not available
-        }
-        
         int imagesWithAlt = 0;
         for (AltTextResult altText : altTextResults) {
             if (altText.getAlt() != null && !altText.getAlt().isEmpty() && !altText.isDecorative()) {
@@ -493,15 +868,37 @@ public class chatDocService {
     }
 
     /**
-     * OpenAI Chat Completions (JSON) via {@link HttpClient}. Matches fine-tuned chat message layout.
+     * OpenAI Chat Completions (JSON) via {@link LlmClient}. Matches fine-tuned chat message layout.
+     * Non-empty answers are kept in {@link LlmResponseCache}; an identical request is answered from there.
      */
-    private String callOpenAICompletion(String systemPrompt, String userPrompt, String model, int maxTokens,
-                                      double temperature) throws IOException {
-        if (openaiApiKey == null || openaiApiKey.isBlank()) {
-            throw new IOException("OpenAI API key is not configured");
+    private String callOpenAICompletion(LlmClient.Stage stage, String systemPrompt, String userPrompt, String model,
+                                        int maxTokens, double temperature) throws IOException {
+        try {
+            return callOpenAICompletionAsync(stage, systemPrompt, userPrompt, model, maxTokens, temperature).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("OpenAI request interrupted", e);
+        } catch (ExecutionException e) {
+            throw LlmClient.unwrap(e.getCause());
+        }
+    }
+
+    /** Non-blocking form of {@link #callOpenAICompletion}; failures complete the future with an {@link IOException}. */
+    private CompletableFuture<String> callOpenAICompletionAsync(LlmClient.Stage stage, String systemPrompt,
+                                                                String userPrompt, String model, int maxTokens,
+                                                                double temperature) {
+        if (!llmTransport.isConfigured()) {
+            return CompletableFuture.failedFuture(new IOException("OpenAI API key is not configured"));
         }
         if (model == null || model.isBlank()) {
-            throw new IOException("OpenAI model is not configured");
+            return CompletableFuture.failedFuture(new IOException("OpenAI model is not configured"));
+        }
+
+        String cacheKey = LlmResponseCache.key(model, systemPrompt, userPrompt, List.of(),
+            "max_tokens=" + maxTokens + ";temperature=" + temperature);
+        Optional<String> cached = responseCache.get(cacheKey, stage);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
         }
 
         Map<String, Object> requestBody = new LinkedHashMap<>();
@@ -514,36 +911,138 @@ public class chatDocService {
         messages.add(Map.of("role", "user", "content", userPrompt));
         requestBody.put("messages", messages);
 
-        String jsonBody = objectMapper.writeValueAsString(requestBody);
+        String jsonBody;
+        try {
+            jsonBody = objectMapper.writeValueAsString(requestBody);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
 
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create("https://api.openai.com/v1/chat/completions"))
-            .header("Authorization", "Bearer " + openaiApiKey)
-            .header("Content-Type", "application/json")
-            .POST(HttpRequest.BodyPublishers.ofString(jsonBody, StandardCharsets.UTF_8))
-            .build();
+        int estimatedTokens = LlmRateLimiter.estimateTextTokens(systemPrompt.length() + userPrompt.length()) + maxTokens;
+        return llmTransport.postChatCompletionAsync(stage, model, estimatedTokens, jsonBody)
+            .thenApply(response -> {
+                int code = response.statusCode();
+                ChatCompletionResponse completion = response.body();
+                if (code < 200 || code >= 300) {
+                    log.error("OpenAI API error: {} — {}", code, completion.getErrorBody());
+                    throw new CompletionException(new IOException("OpenAI API call failed with HTTP " + code));
+                }
+                String content = completion.getContent();
+                if (content == null) {
+                    log.warn("OpenAI response had no message content (finish_reason {})", completion.getFinishReason());
+                    return "";
+                }
+                if (!content.isBlank()) {
+                    responseCache.put(cacheKey, stage, model, content);
+                }
+                return content;
+            });
+    }
 
-        HttpResponse<String> response;
+    /**
+     * {@link #callOpenAICompletion} with {@code stream: true}: each content delta is passed to {@code onDelta} as
+     * it arrives and the assembled text is returned (and cached) at the end. A cache hit is delivered as a
+     * single delta. The body must be read within {@code openai.timeout.altered-doc-ms}; a stream that stalls,
+     * ends before {@code [DONE]} or stops for any reason but {@code stop} fails with an {@link IOException} and
+     * nothing is cached.
+     */
+    private String callOpenAICompletionStreaming(LlmClient.Stage stage, String systemPrompt, String userPrompt,
+                                                 String model, int maxTokens, double temperature,
+                                                 Consumer<String> onDelta) throws IOException {
+        if (!llmTransport.isConfigured()) {
+            throw new IOException("OpenAI API key is not configured");
+        }
+        if (model == null || model.isBlank()) {
+            throw new IOException("OpenAI model is not configured");
+        }
+
+        String cacheKey = LlmResponseCache.key(model, systemPrompt, userPrompt, List.of(),
+            "max_tokens=" + maxTokens + ";temperature=" + temperature);
+        Optional<String> cached = responseCache.get(cacheKey, stage);
+        if (cached.isPresent()) {
+            onDelta.accept(cached.get());
+            return cached.get();
+        }
+
+        Map<String, Object> requestBody = new LinkedHashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("max_tokens", maxTokens);
+        requestBody.put("temperature", temperature);
+        requestBody.put("stream", true);
+        requestBody.put("messages", List.of(
+            Map.of("role", "system", "content", systemPrompt),
+            Map.of("role", "user", "content", userPrompt)));
+        String jsonBody = objectMapper.writeValueAsString(requestBody);
+
+        int estimatedTokens = LlmRateLimiter.estimateTextTokens(systemPrompt.length() + userPrompt.length()) + maxTokens;
+        HttpResponse<Stream<String>> response;
         try {
-            response = openaiHttpClient.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            response = llmTransport.postChatCompletionStreamAsync(stage, model, estimatedTokens, jsonBody).get();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException("OpenAI request interrupted", e);
-        }
-        int code = response.statusCode();
-        String body = response.body();
-        if (code < 200 || code >= 300) {
-            log.error("OpenAI API error: {} — {}", code, body);
-            throw new IOException("OpenAI API call failed with HTTP " + code);
+        } catch (ExecutionException e) {
+            throw LlmClient.unwrap(e.getCause());
         }
 
-        JsonNode root = objectMapper.readTree(body);
-        JsonNode choices = root.path("choices");
-        if (!choices.isArray() || choices.isEmpty()) {
-            log.warn("OpenAI response had no choices: {}", body);
-            return "";
+        StringBuilder content = new StringBuilder();
+        boolean sawDone = false;
+        String finishReason = null;
+        Stream<String> lines = response.body();
+        // The request timeout stops at the headers; closing the stream unblocks a read stuck on a silent upstream.
+        CompletableFuture<Void> bodyDeadline = new CompletableFuture<Void>()
+            .orTimeout(alteredDocTimeoutMs, TimeUnit.MILLISECONDS);
+        bodyDeadline.whenComplete((ignored, timeout) -> {
+            if (timeout != null) {
+                lines.close();
+            }
+        });
+        try (lines) {
+            if (response.statusCode() < 200 || response.statusCode() >= 300) {
+                String body = lines.collect(Collectors.joining("\n"));
+                log.error("OpenAI API error: {} — {}", response.statusCode(), body);
+                throw new IOException("OpenAI API call failed with HTTP " + response.statusCode());
+            }
+            Iterator<String> it = lines.iterator();
+            while (it.hasNext()) {
+                String line = it.next();
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring("data:".length()).trim();
+                if ("[DONE]".equals(data)) {
+                    sawDone = true;
+                    break;
+                }
+                ChatCompletionResponse chunk = ChatCompletionResponse.parse(data, objectMapper.getFactory());
+                if (chunk.getErrorMessage() != null) {
+                    throw new IOException("OpenAI stream failed: " + chunk.getErrorMessage());
+                }
+                if (chunk.getFinishReason() != null) {
+                    finishReason = chunk.getFinishReason();
+                }
+                String delta = chunk.getContent();
+                if (delta != null && !delta.isEmpty()) {
+                    content.append(delta);
+                    onDelta.accept(delta);
+                }
+            }
+        } catch (UncheckedIOException e) {
+            if (bodyDeadline.isCompletedExceptionally()) {
+                throw new HttpTimeoutException("OpenAI stream not finished within " + alteredDocTimeoutMs + " ms");
+            }
+            throw e.getCause();
+        } finally {
+            bodyDeadline.complete(null);
         }
-        return choices.get(0).path("message").path("content").asText("");
+        if (finishReason != null ? !"stop".equals(finishReason) : !sawDone) {
+            throw new IOException("OpenAI stream ended without completing (finish_reason " + finishReason
+                + ", " + content.length() + " chars received)");
+        }
+        if (content.length() > 0) {
+            responseCache.put(cacheKey, stage, model, content.toString());
+        }
+        return content.toString();
     }
 
     private static String stripMarkdownFences(String text) {
@@ -632,21 +1131,29 @@ public class chatDocService {
     /**
      * Stage 1: HTML document (same shape as training) → plain-text corrections → {@link RemediationPlan}.
      */
-    private RemediationPlan generateRemediationPlanWithModel(chatDoc document, AccessibilityReport report,
-                                                             List<ImageInfo> images, String htmlDocument) {
+    private RemediationPlan generateRemediationPlanWithModel(String htmlDocument) {
         try {
             String model = modelForPlanGeneration();
             if (model == null || model.isBlank()) {
                 log.warn("No plan model configured, returning null");
                 return null;
             }
-            if (openaiApiKey == null || openaiApiKey.isBlank()) {
+            if (!llmTransport.isConfigured()) {
                 log.warn("No OpenAI API key configured, skipping plan generation");
                 return null;
             }
+            if (!circuitBreaker.isCallPermitted(model)) {
+                log.warn("Circuit open for {}, skipping plan generation", model);
+                return null;
+            }
+
+            List<String> chunks = HtmlChunker.chunk(htmlDocument, planChunkTokens);
+            if (chunks.size() > 1) {
+                return generateChunkedRemediationPlan(chunks, model);
+            }
 
             String userPrompt = STAGE1_USER_PREFIX + htmlDocument;
-            String responseText = callOpenAICompletion(STAGE1_SYSTEM_PROMPT, userPrompt, model, 4000, 0.3);
+            String responseText = callOpenAICompletion(LlmClient.Stage.PLAN, STAGE1_SYSTEM_PROMPT, userPrompt, model, 4000, 0.3);
             if (responseText == null || responseText.isBlank()) {
                 log.warn("Empty plan response from model");
                 return null;
@@ -659,45 +1166,127 @@ public class chatDocService {
         }
     }
 
+    /**
+     * Stage 1 for documents over {@code openai.plan.chunk-tokens}: audit each chunk concurrently (paced by the
+     * rate limiter), parse each corrections summary, and merge into one plan with duplicate issues removed.
+     * Any failed chunk fails the whole plan so Stage 2 never works from a partial audit.
+     */
+    private RemediationPlan generateChunkedRemediationPlan(List<String> chunks, String model) throws IOException {
+        log.info("Stage 1 split into {} chunks", chunks.size());
+        pipelineMetrics.increment("plan.chunked");
+        List<CompletableFuture<String>> audits = new ArrayList<>();
+        for (String chunk : chunks) {
+            audits.add(callOpenAICompletionAsync(LlmClient.Stage.PLAN, STAGE1_SYSTEM_PROMPT,
+                STAGE1_USER_PREFIX + chunk, model, 4000, 0.3));
+        }
+        List<RemediationPlan> partials = new ArrayList<>();
+        for (CompletableFuture<String> audit : audits) {
+            String responseText;
+            try {
+                responseText = audit.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Chunked plan generation interrupted", e);
+            } catch (ExecutionException e) {
+                throw LlmClient.unwrap(e.getCause());
+            }
+            partials.add(parseCorrectionsTextToPlan(responseText));
+        }
+        return RemediationPlan.mergeParsedAudits(partials);
+    }
+
     /**
      * Stage 2: corrections summary + non-compliant HTML → fixed HTML (fine-tuned format).
      * {@code documentHtml} must match Stage 1 input (typically {@link #convertToRawHtml} output).
+     * In full mode with streaming on, partial output is relayed to {@code /alteredDocuments/{documentId}/stream}.
      * On null/empty return, {@link #processPdfDocument} falls back to {@link #createAccessibleHtmlFromPlan}.
      */
-    private String generateAlteredDocumentWithModel(String documentHtml, List<ImageInfo> images,
-                                                    List<AltTextResult> altTextResults, RemediationPlan plan) {
+    private String generateAlteredDocumentWithModel(Long documentId, String documentHtml, List<ImageInfo> images,
+                                                    RemediationPlan plan) {
         try {
             String model = modelForAlteredDocumentGeneration();
             if (model == null || model.isBlank()) {
                 log.info("No altered-doc model configured, skipping LLM generation");
                 return null;
             }
-            if (openaiApiKey == null || openaiApiKey.isBlank()) {
+            if (!llmTransport.isConfigured()) {
                 log.warn("No OpenAI API key configured, skipping LLM generation");
                 return null;
             }
+            if (!circuitBreaker.isCallPermitted(model)) {
+                log.warn("Circuit open for {}, skipping LLM generation", model);
+                return null;
+            }
 
             String correctionsSummary = plan.toCorrectionsText();
             String userPrompt = STAGE2_USER_PREFIX + correctionsSummary + "\n\n" + documentHtml;
 
-            String fixedHtml = callOpenAICompletion(STAGE2_SYSTEM_PROMPT, userPrompt, model, 8000, 0.2);
+            if ("patch".equalsIgnoreCase(alteredDocMode)) {
+                boolean planHasIssues = plan.getIssues() != null && !plan.getIssues().isEmpty();
+                String patched = generatePatchedDocument(documentHtml, userPrompt, model, planHasIssues);
+                if (patched != null) {
+                    return rehydrateImageSources(patched, images);
+                }
+                pipelineMetrics.increment("stage2.patch.fallback");
+            }
+
+            String fixedHtml;
+            if (alteredDocStreaming) {
+                alteredDocStreams.begin(documentId);
+                try {
+                    fixedHtml = callOpenAICompletionStreaming(LlmClient.Stage.ALTERED_DOC, STAGE2_SYSTEM_PROMPT,
+                        userPrompt, model, 8000, 0.2, delta -> alteredDocStreams.append(documentId, delta));
+                } catch (IOException e) {
+                    alteredDocStreams.discard(documentId);
+                    throw e;
+                }
+            } else {
+                fixedHtml = callOpenAICompletion(LlmClient.Stage.ALTERED_DOC, STAGE2_SYSTEM_PROMPT, userPrompt, model, 8000, 0.2);
+            }
             if (fixedHtml == null || fixedHtml.isBlank()) {
                 return null;
             }
-            return stripMarkdownFences(fixedHtml);
+            return rehydrateImageSources(stripMarkdownFences(fixedHtml), images);
         } catch (Exception e) {
             log.error("Failed to generate altered document with model", e);
             return null;
         }
     }
 
+    /**
+     * Stage 2 patch mode: ask for find/replace edits instead of the whole document, then apply them locally.
+     * Returns null (caller regenerates in full) if the call fails, any edit does not apply cleanly, or the model
+     * returns no edits although {@code planHasIssues}.
+     */
+    private String generatePatchedDocument(String documentHtml, String userPrompt, String model, boolean planHasIssues) {
+        try {
+            String response = callOpenAICompletion(LlmClient.Stage.ALTERED_DOC, STAGE2_PATCH_SYSTEM_PROMPT,
+                userPrompt, model, 4000, 0.2);
+            List<HtmlPatchApplier.Edit> edits = HtmlPatchApplier.parse(stripMarkdownFences(response), objectMapper,
+                planHasIssues);
+            String patched = HtmlPatchApplier.apply(documentHtml, edits);
+            log.info("Stage 2 applied {} patch edits", edits.size());
+            pipelineMetrics.increment("stage2.patch.applied");
+            return patched;
+        } catch (HtmlPatchApplier.PatchException e) {
+            log.warn("Stage 2 patch rejected, regenerating full document: {}", e.getMessage());
+            return null;
+        } catch (Exception e) {
+            log.warn("Stage 2 patch call failed, regenerating full document", e);
+            return null;
+        }
+    }
+
     /**
      * Builds HTML with common accessibility defects (no {@code lang}, pseudo-headings as styled divs,
      * images without {@code alt}) so Stage 1 can detect them and Stage 2 can fix them—matching error
      * patterns typical of the fine-tuning corpus. Not used as final user-facing output when plan
      * generation fails; see {@link #processPdfDocument}.
+     *
+     * @param imagePlaceholders emit {@code src="img_<page>_<index>"} (the image id) instead of inline base64,
+     *                          keeping image bytes out of the prompt; see {@link #rehydrateImageSources}
      */
-    private String convertToRawHtml(String originalContent, List<ImageInfo> images) {
+    static String convertToRawHtml(String originalContent, List<ImageInfo> images, boolean imagePlaceholders) {
         StringBuilder html = new StringBuilder();
 
         html.append("<!DOCTYPE html>\n");
@@ -730,8 +1319,8 @@ public class chatDocService {
             if (image == null || image.getImageBytes() == null) {
                 continue;
             }
-            html.append("  <img src=\"data:image/png;base64,")
-                .append(Base64.getEncoder().encodeToString(image.getImageBytes()))
+            html.append("  <img src=\"")
+                .append(imagePlaceholders ? image.getImageId() : image.toDataUrl())
                 .append("\" />\n");
         }
 
@@ -741,6 +1330,47 @@ public class chatDocService {
         return html.toString();
     }
 
+    /**
+     * Swap placeholder image sources written by {@link #convertToRawHtml} (and echoed back by the model) for the
+     * real data URLs. Ids the model changed are left untouched and images it dropped stay missing; both are
+     * logged.
+     */
+    static String rehydrateImageSources(String html, List<ImageInfo> images) {
+        if (html == null || images == null || images.isEmpty()) {
+            return html;
+        }
+        Map<String, ImageInfo> byId = new LinkedHashMap<>();
+        for (ImageInfo image : images) {
+            if (image != null && image.getImageBytes() != null) {
+                byId.put(image.getImageId(), image);
+            }
+        }
+        Set<String> unused = new HashSet<>(byId.keySet());
+        Set<String> unknown = new HashSet<>();
+        Matcher m = IMAGE_PLACEHOLDER_SRC.matcher(html);
+        StringBuilder out = new StringBuilder(html.length());
+        boolean matched = false;
+        while (m.find()) {
+            matched = true;
+            ImageInfo image = byId.get(m.group(3));
+            if (image != null) {
+                unused.remove(m.group(3));
+            } else {
+                unknown.add(m.group(3));
+            }
+            String replacement = image != null ? m.group(1) + m.group(2) + image.toDataUrl() + m.group(2) : m.group();
+            m.appendReplacement(out, Matcher.quoteReplacement(replacement));
+        }
+        m.appendTail(out);
+        if (!unknown.isEmpty()) {
+            log.warn("Stage 2 output references unknown image ids {}; left as is", unknown);
+        }
+        if (matched && !unused.isEmpty()) {
+            log.warn("Stage 2 output dropped images {}", unused);
+        }
+        return out.toString();
+    }
+
     /**
      * Create accessible HTML version of the document
      */
@@ -779,8 +1409,8 @@ public class chatDocService {
         for (ImageInfo image : images) {
             AltTextResult altText = altTextMap.get(image.getImageId());
             html.append("    <figure>\n");
-            html.append("      <img src=\"data:image/png;base64,")
-                .append(Base64.getEncoder().encodeToString(image.getImageBytes()))
+            html.append("      <img src=\"")
+                .append(image.toDataUrl())
                 .append("\" alt=\"");
             
             if (altText != null && altText.getAlt() != null) {
@@ -920,8 +1550,8 @@ public class chatDocService {
             }
 
             html.append("    <figure>\n");
-            html.append("      <img src=\"data:image/png;base64,")
-                .append(Base64.getEncoder().encodeToString(image.getImageBytes()))
+            html.append("      <img src=\"")
+                .append(image.toDataUrl())
                 .append("\" alt=\"").append(escapeHtml(alt)).append("\"");
             if (decorative) {
                 html.append(" role=\"presentation\"");
@@ -978,7 +1608,7 @@ public class chatDocService {
         return page + "_" + idx;
     }
 
-    private String escapeHtml(String text) {
+    private static String escapeHtml(String text) {
         if (text == null) return "";
         return text.replace("&", "&amp;")
                    .replace("<", "&lt;")
@@ -0,0 +1,69 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChatCompletionResponseTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    @Test
+    void extractsContentFromFullResponse() throws Exception {
+        String json = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion\",\"model\":\"gpt-4o\","
+            + "\"choices\":[{\"index\":0,\"message\":{\"role\":\"assistant\","
+            + "\"content\":\"<p lang=\\\"en\\\">Caf\\u00e9\\n</p>\"},\"finish_reason\":\"stop\"},"
+            + "{\"index\":1,\"message\":{\"role\":\"assistant\",\"content\":\"second choice\"}}],"
+            + "\"usage\":{\"prompt_tokens\":12,\"completion_tokens\":7,\"total_tokens\":19}}";
+
+        ChatCompletionResponse response = ChatCompletionResponse.parse(json, JSON);
+
+        assertEquals("<p lang=\"en\">Café\n</p>", response.getContent());
+        assertEquals("stop", response.getFinishReason());
+        assertEquals("gpt-4o", response.getModel());
+        assertEquals(12, response.getPromptTokens());
+        assertEquals(7, response.getCompletionTokens());
+        assertNull(response.getErrorMessage());
+    }
+
+    @Test
+    void extractsDeltaFromStreamedChunk() throws Exception {
+        String chunk = "{\"id\":\"chatcmpl-1\",\"object\":\"chat.completion.chunk\",\"model\":\"gpt-4o\","
+            + "\"choices\":[{\"index\":0,\"delta\":{\"content\":\"<h1>\"},\"finish_reason\":null}]}";
+
+        ChatCompletionResponse response = ChatCompletionResponse.parse(chunk, JSON);
+
+        assertEquals("<h1>", response.getContent());
+        assertNull(response.getFinishReason());
+    }
+
+    @Test
+    void finalStreamedChunkCarriesFinishReasonWithoutContent() throws Exception {
+        String chunk = "{\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"length\"}]}";
+
+        ChatCompletionResponse response = ChatCompletionResponse.parse(chunk, JSON);
+
+        assertNull(response.getContent());
+        assertEquals("length", response.getFinishReason());
+    }
+
+    @Test
+    void nestedContentKeysElsewhereAreIgnored() throws Exception {
+        String json = "{\"metadata\":{\"content\":\"not this\"},"
+            + "\"choices\":[{\"message\":{\"content\":null,\"tool_calls\":[{\"content\":\"nor this\"}]}}]}";
+
+        assertNull(ChatCompletionResponse.parse(json, JSON).getContent());
+    }
+
+    @Test
+    void extractsErrorMessage() throws Exception {
+        String json = "{\"error\":{\"message\":\"Rate limit reached\",\"type\":\"requests\"}}";
+
+        ChatCompletionResponse response = ChatCompletionResponse.parse(json, JSON);
+
+        assertEquals("Rate limit reached", response.getErrorMessage());
+        assertNull(response.getContent());
+    }
+}
@@ -0,0 +1,125 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HtmlChunkerTest {
+
+    private static final String HEAD = "<html>\n<head><title>T</title></head>\n<body>\n";
+    private static final String TAIL = "</body>\n</html>";
+
+    private static String document(List<String> blocks) {
+        return HEAD + String.join("\n", blocks) + "\n" + TAIL;
+    }
+
+    private static List<String> paragraphs(int count, int length) {
+        List<String> blocks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String text = String.valueOf(i).repeat(length);
+            blocks.add("<p>" + text.substring(0, length) + "</p>");
+        }
+        return blocks;
+    }
+
+    @Test
+    void documentWithinBudgetIsOneChunk() {
+        String html = document(paragraphs(3, 10));
+
+        List<String> chunks = HtmlChunker.chunk(html, 10_000);
+
+        assertEquals(1, chunks.size());
+        assertSame(html, chunks.get(0));
+    }
+
+    @Test
+    void zeroBudgetNeverSplits() {
+        String html = document(paragraphs(50, 200));
+
+        assertEquals(List.of(html), HtmlChunker.chunk(html, 0));
+    }
+
+    @Test
+    void splitsOnlyBetweenBlocksAndRepeatsHeadAndTail() {
+        List<String> blocks = paragraphs(10, 393); // 400 chars per block line
+        String html = document(blocks);
+
+        // (budget - head/tail tokens) * 4 chars: room for two 401-char lines, not three
+        int headTailTokens = LlmRateLimiter.estimateTextTokens(HEAD.length() + TAIL.length());
+        List<String> chunks = HtmlChunker.chunk(html, headTailTokens + 250);
+
+        assertEquals(5, chunks.size());
+        List<String> seen = new ArrayList<>();
+        for (String chunk : chunks) {
+            assertTrue(chunk.startsWith(HEAD), chunk);
+            assertTrue(chunk.endsWith(TAIL), chunk);
+            String body = chunk.substring(HEAD.length(), chunk.length() - TAIL.length());
+            for (String line : body.split("\n")) {
+                seen.add(line);
+            }
+        }
+        assertEquals(blocks, seen);
+    }
+
+    @Test
+    void oversizedBlockGoesOutAloneUncut() {
+        List<String> blocks = List.of("<p>a</p>", "<table>" + "x".repeat(2000) + "</table>", "<p>b</p>");
+        String html = document(blocks);
+        int headTailTokens = LlmRateLimiter.estimateTextTokens(HEAD.length() + TAIL.length());
+
+        List<String> chunks = HtmlChunker.chunk(html, headTailTokens + 50);
+
+        assertEquals(3, chunks.size());
+        assertEquals(HEAD + blocks.get(1) + "\n" + TAIL, chunks.get(1));
+    }
+
+    @Test
+    void multiLineParagraphsFromRawHtmlAreNeverSplit() {
+        // PDFTextStripper ends every line with "\n"; convertToRawHtml only splits paragraphs on blank lines.
+        StringBuilder text = new StringBuilder();
+        for (int p = 0; p < 12; p++) {
+            for (int line = 0; line < 6; line++) {
+                text.append("Paragraph ").append(p).append(" line ").append(line)
+                    .append(" of extracted text that runs close to a page width.\n");
+            }
+            text.append('\n');
+        }
+        String html = chatDocService.convertToRawHtml(text.toString(), List.of(), true);
+        int bodyStart = html.indexOf("<body>\n") + "<body>\n".length();
+        int bodyEnd = html.lastIndexOf("</body>");
+
+        List<String> chunks = HtmlChunker.chunk(html, 600);
+
+        assertTrue(chunks.size() > 1, "document should need several chunks");
+        StringBuilder rejoined = new StringBuilder();
+        for (String chunk : chunks) {
+            String body = chunk.substring(bodyStart, chunk.lastIndexOf("</body>"));
+            assertEquals(count(body, "<p>"), count(body, "</p>"), body);
+            assertFalse(body.startsWith("Paragraph"), body);
+            rejoined.append(body);
+        }
+        assertEquals(html.substring(bodyStart, bodyEnd), rejoined.toString());
+    }
+
+    @Test
+    void blocksFollowElementNesting() {
+        String body = "  <p>one\ntwo</p>\n  <img src=\"img_1_0\" />\n  <div><span>a</span>\n<br>b</div>\n\n";
+
+        assertEquals(List.of("  <p>one\ntwo</p>\n", "  <img src=\"img_1_0\" />\n", "  <div><span>a</span>\n<br>b</div>\n"),
+            HtmlChunker.blocks(body));
+    }
+
+    private static int count(String s, String needle) {
+        int n = 0;
+        for (int i = s.indexOf(needle); i >= 0; i = s.indexOf(needle, i + 1)) {
+            n++;
+        }
+        return n;
+    }
+}
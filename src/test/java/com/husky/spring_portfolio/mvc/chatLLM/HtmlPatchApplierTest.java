@@ -0,0 +1,77 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HtmlPatchApplierTest {
+
+    private static final String HTML = "<html>\n<body>\n<img src=\"img_1_0\">\n<p>One</p>\n<p>Two</p>\n</body>\n</html>";
+
+    @Test
+    void appliesNonOverlappingEditsByOriginalOffsets() throws Exception {
+        String patched = HtmlPatchApplier.apply(HTML, List.of(
+            new HtmlPatchApplier.Edit("<p>Two</p>", "<h2>Two</h2>"),
+            new HtmlPatchApplier.Edit("<img src=\"img_1_0\">", "<img src=\"img_1_0\" alt=\"Chart\">")));
+
+        assertEquals("<html>\n<body>\n<img src=\"img_1_0\" alt=\"Chart\">\n<p>One</p>\n<h2>Two</h2>\n</body>\n</html>",
+            patched);
+    }
+
+    @Test
+    void rejectsMissingTarget() {
+        HtmlPatchApplier.PatchException e = assertThrows(HtmlPatchApplier.PatchException.class,
+            () -> HtmlPatchApplier.apply(HTML, List.of(new HtmlPatchApplier.Edit("<p>Three</p>", "x"))));
+        assertTrue(e.getMessage().contains("not found"), e.getMessage());
+    }
+
+    @Test
+    void rejectsTargetThatOccursTwice() {
+        HtmlPatchApplier.PatchException e = assertThrows(HtmlPatchApplier.PatchException.class,
+            () -> HtmlPatchApplier.apply(HTML, List.of(new HtmlPatchApplier.Edit("<p>", "<p class=\"x\">"))));
+        assertTrue(e.getMessage().contains("not unique"), e.getMessage());
+    }
+
+    @Test
+    void rejectsOverlappingEdits() {
+        HtmlPatchApplier.PatchException e = assertThrows(HtmlPatchApplier.PatchException.class,
+            () -> HtmlPatchApplier.apply(HTML, List.of(
+                new HtmlPatchApplier.Edit("<p>One</p>\n<p>Two</p>", "<ul><li>One</li><li>Two</li></ul>"),
+                new HtmlPatchApplier.Edit("<p>Two</p>", "<h2>Two</h2>"))));
+        assertTrue(e.getMessage().contains("overlaps"), e.getMessage());
+    }
+
+    @Test
+    void parsesBareArrayAndEditsObject() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        List<HtmlPatchApplier.Edit> bare = HtmlPatchApplier.parse("[{\"find\":\"a\",\"replace\":\"b\"}]", objectMapper);
+        List<HtmlPatchApplier.Edit> wrapped = HtmlPatchApplier.parse(
+            "{\"edits\":[{\"find\":\"a\",\"replace\":\"\"}]}", objectMapper);
+
+        assertEquals("b", bare.get(0).getReplace());
+        assertEquals("", wrapped.get(0).getReplace());
+    }
+
+    @Test
+    void parseRejectsEmptyFind() {
+        assertThrows(HtmlPatchApplier.PatchException.class,
+            () -> HtmlPatchApplier.parse("[{\"find\":\"\",\"replace\":\"b\"}]", new ObjectMapper()));
+    }
+
+    @Test
+    void emptyEditListIsRejectedOnlyWhenEditsAreRequired() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertTrue(HtmlPatchApplier.parse("[]", objectMapper, false).isEmpty());
+        assertThrows(HtmlPatchApplier.PatchException.class,
+            () -> HtmlPatchApplier.parse("[]", objectMapper, true));
+        assertThrows(HtmlPatchApplier.PatchException.class,
+            () -> HtmlPatchApplier.parse("{\"edits\":[]}", objectMapper, true));
+    }
+}
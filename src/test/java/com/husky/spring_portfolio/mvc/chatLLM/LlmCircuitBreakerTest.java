@@ -0,0 +1,153 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmCircuitBreakerTest {
+
+    private static final String MODEL = "gpt-test";
+    private static final long FAST = 1_000_000L;
+    private static final long SLOW_LIMIT = 10_000_000L;
+
+    private LlmCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        breaker = new LlmCircuitBreaker(new PipelineMetrics());
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 2);
+        ReflectionTestUtils.setField(breaker, "openMs", 60_000L);
+    }
+
+    /** Simulate the open period having elapsed. */
+    private void elapseOpenPeriod() {
+        ReflectionTestUtils.setField(breaker, "openMs", 0L);
+    }
+
+    private LlmCircuitBreaker.Permit acquire() {
+        LlmCircuitBreaker.Permit permit = breaker.tryAcquire(MODEL);
+        assertNotNull(permit);
+        return permit;
+    }
+
+    private void failCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            breaker.onFailure(acquire());
+        }
+    }
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRefusesCalls() {
+        failCalls(1);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.stateOf(MODEL));
+
+        failCalls(1);
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.stateOf(MODEL));
+        assertFalse(breaker.isCallPermitted(MODEL));
+        assertNull(breaker.tryAcquire(MODEL));
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        failCalls(1);
+        breaker.onSuccess(acquire(), FAST, SLOW_LIMIT);
+        failCalls(1);
+
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.stateOf(MODEL));
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        for (int i = 0; i < 2; i++) {
+            breaker.onSuccess(acquire(), SLOW_LIMIT + 1, SLOW_LIMIT);
+        }
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.stateOf(MODEL));
+    }
+
+    @Test
+    void halfOpenLetsOneProbeThroughAndClosesOnSuccess() {
+        failCalls(2);
+        elapseOpenPeriod();
+
+        LlmCircuitBreaker.Permit probe = acquire();
+        assertTrue(probe.isProbe());
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.stateOf(MODEL));
+        assertNull(breaker.tryAcquire(MODEL), "only one probe at a time");
+
+        breaker.onSuccess(probe, FAST, SLOW_LIMIT);
+
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.stateOf(MODEL));
+        assertNotNull(breaker.tryAcquire(MODEL));
+    }
+
+    @Test
+    void failedProbeReopens() {
+        failCalls(2);
+        elapseOpenPeriod();
+        LlmCircuitBreaker.Permit probe = acquire();
+
+        breaker.onFailure(probe);
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.stateOf(MODEL));
+    }
+
+    @Test
+    void releasedProbeLetsTheNextCallerProbe() {
+        failCalls(2);
+        elapseOpenPeriod();
+        LlmCircuitBreaker.Permit probe = acquire();
+
+        breaker.release(probe);
+
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.stateOf(MODEL));
+        assertNotNull(breaker.tryAcquire(MODEL));
+    }
+
+    @Test
+    void releaseFromAnotherCallDoesNotFreeTheProbeSlot() {
+        LlmCircuitBreaker.Permit earlier = acquire(); // in flight while the circuit opens
+        failCalls(2);
+        elapseOpenPeriod();
+        LlmCircuitBreaker.Permit probe = acquire();
+
+        breaker.release(earlier);
+
+        assertNull(breaker.tryAcquire(MODEL), "the first probe is still running");
+        breaker.release(probe);
+        assertNotNull(breaker.tryAcquire(MODEL));
+    }
+
+    @Test
+    void outcomesOfOtherCallsDoNotSettleTheProbe() {
+        LlmCircuitBreaker.Permit earlierSuccess = acquire();
+        LlmCircuitBreaker.Permit earlierFailure = acquire();
+        failCalls(2);
+        elapseOpenPeriod();
+        LlmCircuitBreaker.Permit probe = acquire();
+
+        breaker.onSuccess(earlierSuccess, FAST, SLOW_LIMIT);
+        breaker.onFailure(earlierFailure);
+
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.stateOf(MODEL));
+        assertNull(breaker.tryAcquire(MODEL));
+        breaker.onSuccess(probe, FAST, SLOW_LIMIT);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.stateOf(MODEL));
+    }
+
+    @Test
+    void zeroThresholdDisablesTheBreaker() {
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 0);
+
+        failCalls(5);
+
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.stateOf(MODEL));
+    }
+}
@@ -0,0 +1,64 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void bucketRefillsAtCapacityPerMinute() {
+        LlmRateLimiter.Bucket bucket = new LlmRateLimiter.Bucket(60, 0);
+        bucket.take(60);
+        assertEquals(1000, bucket.waitMsFor(1));
+
+        bucket.refill(SECOND / 2);
+        assertEquals(0.5, bucket.available, 1e-9);
+        assertEquals(500, bucket.waitMsFor(1));
+
+        bucket.refill(SECOND);
+        assertEquals(0, bucket.waitMsFor(1));
+    }
+
+    @Test
+    void bucketNeverRefillsAboveCapacity() {
+        LlmRateLimiter.Bucket bucket = new LlmRateLimiter.Bucket(60, 0);
+        bucket.take(10);
+
+        bucket.refill(TimeUnit.MINUTES.toNanos(5));
+
+        assertEquals(60, bucket.available, 1e-9);
+    }
+
+    @Test
+    void overdrawnBucketQueuesLaterCallersBehindEarlierOnes() {
+        LlmRateLimiter.Bucket bucket = new LlmRateLimiter.Bucket(60, 0);
+        bucket.take(60);
+        bucket.take(1); // reserved by a caller already told to wait one second
+
+        assertEquals(2000, bucket.waitMsFor(1));
+    }
+
+    @Test
+    void reserveDelaysThenRejectsOverMaxWait() throws Exception {
+        LlmRateLimiter limiter = new LlmRateLimiter(new PipelineMetrics());
+        ReflectionTestUtils.setField(limiter, "requestsPerMinute", 60);
+        ReflectionTestUtils.setField(limiter, "tokensPerMinute", 0);
+        ReflectionTestUtils.setField(limiter, "maxWaitMs", 1500L);
+
+        for (int i = 0; i < 60; i++) {
+            assertEquals(0, limiter.reserve("m", 100));
+        }
+        long wait = limiter.reserve("m", 100);
+        assertTrue(wait > 900 && wait <= 1000, "wait " + wait);
+        assertThrows(LlmRateLimiter.RateLimitExceededException.class, () -> limiter.reserve("m", 100));
+        assertEquals(0, limiter.reserve("other", 100), "budgets are per model");
+    }
+}
@@ -0,0 +1,41 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmTransportTest {
+
+    @Test
+    void retryAfterInSeconds() {
+        assertEquals(120_000, LlmTransport.parseRetryAfterMs("120"));
+        assertEquals(1_500, LlmTransport.parseRetryAfterMs(" 1.5 "));
+        assertEquals(0, LlmTransport.parseRetryAfterMs("-3"));
+    }
+
+    @Test
+    void retryAfterAsHttpDate() {
+        String inThirtySeconds = DateTimeFormatter.RFC_1123_DATE_TIME
+            .format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30));
+
+        long ms = LlmTransport.parseRetryAfterMs(inThirtySeconds);
+
+        // RFC 1123 has whole seconds, and time passes between formatting and parsing
+        assertTrue(ms > 28_000 && ms <= 30_000, "ms " + ms);
+    }
+
+    @Test
+    void retryAfterDateInThePastMeansNow() {
+        assertEquals(0, LlmTransport.parseRetryAfterMs("Wed, 21 Oct 2015 07:28:00 GMT"));
+    }
+
+    @Test
+    void unparseableRetryAfterIsIgnored() {
+        assertEquals(-1, LlmTransport.parseRetryAfterMs("soon"));
+    }
+}
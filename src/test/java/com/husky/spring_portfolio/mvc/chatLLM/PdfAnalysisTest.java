@@ -0,0 +1,108 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceCMYK;
+import org.apache.pdfbox.pdmodel.graphics.image.JPEGFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PdfAnalysisTest {
+
+    private PDDocument document;
+
+    @BeforeEach
+    void setUp() {
+        document = new PDDocument();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        document.close();
+    }
+
+    private static BufferedImage picture(int type) {
+        BufferedImage image = new BufferedImage(16, 12, type);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, 16, 12);
+        g.setColor(Color.BLUE);
+        g.fillRect(2, 2, 8, 6);
+        g.dispose();
+        return image;
+    }
+
+    private static COSArray invertedDecode() {
+        COSArray decode = new COSArray();
+        decode.setFloatArray(new float[] { 1, 0, 1, 0, 1, 0 });
+        return decode;
+    }
+
+    @Test
+    void identicalImageStreamsHashEqually() throws Exception {
+        BufferedImage picture = picture(BufferedImage.TYPE_INT_RGB);
+        PDImageXObject first = LosslessFactory.createFromImage(document, picture);
+        PDImageXObject second = LosslessFactory.createFromImage(document, picture);
+
+        assertEquals(PdfAnalysis.contentHash(first), PdfAnalysis.contentHash(second));
+    }
+
+    @Test
+    void decodeArrayChangesHash() throws Exception {
+        BufferedImage picture = picture(BufferedImage.TYPE_INT_RGB);
+        PDImageXObject plain = LosslessFactory.createFromImage(document, picture);
+        PDImageXObject inverted = LosslessFactory.createFromImage(document, picture);
+        inverted.getCOSObject().setItem(COSName.DECODE, invertedDecode());
+
+        assertNotEquals(PdfAnalysis.contentHash(plain), PdfAnalysis.contentHash(inverted));
+    }
+
+    @Test
+    void softMaskContentChangesHash() throws Exception {
+        BufferedImage picture = picture(BufferedImage.TYPE_INT_RGB);
+        PDImageXObject first = LosslessFactory.createFromImage(document, picture);
+        PDImageXObject second = LosslessFactory.createFromImage(document, picture);
+        BufferedImage blackMask = new BufferedImage(16, 12, BufferedImage.TYPE_BYTE_GRAY);
+        BufferedImage whiteMask = picture(BufferedImage.TYPE_BYTE_GRAY);
+        first.getCOSObject().setItem(COSName.SMASK, LosslessFactory.createFromImage(document, blackMask));
+        second.getCOSObject().setItem(COSName.SMASK, LosslessFactory.createFromImage(document, whiteMask));
+
+        assertNotEquals(PdfAnalysis.contentHash(first), PdfAnalysis.contentHash(second));
+    }
+
+    @Test
+    void rgbJpegPassesThrough() throws Exception {
+        PDImageXObject jpeg = JPEGFactory.createFromImage(document, picture(BufferedImage.TYPE_INT_RGB));
+
+        assertTrue(PdfAnalysis.isPassThroughJpeg(jpeg));
+    }
+
+    @Test
+    void cmykJpegIsNotPassedThrough() throws Exception {
+        PDImageXObject jpeg = JPEGFactory.createFromImage(document, picture(BufferedImage.TYPE_INT_RGB));
+        jpeg.setColorSpace(PDDeviceCMYK.INSTANCE);
+
+        assertFalse(PdfAnalysis.isPassThroughJpeg(jpeg));
+    }
+
+    @Test
+    void jpegWithDecodeArrayIsNotPassedThrough() throws Exception {
+        PDImageXObject jpeg = JPEGFactory.createFromImage(document, picture(BufferedImage.TYPE_INT_RGB));
+        jpeg.getCOSObject().setItem(COSName.DECODE, invertedDecode());
+
+        assertFalse(PdfAnalysis.isPassThroughJpeg(jpeg));
+    }
+}
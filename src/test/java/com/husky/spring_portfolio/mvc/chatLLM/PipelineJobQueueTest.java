@@ -0,0 +1,82 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PipelineJobQueueTest {
+
+    private PipelineJobRepository jobRepository;
+    private chatDocRepository documentRepository;
+    private chatDocService documentService;
+    private PipelineJobQueue queue;
+    private MockMultipartFile file;
+    private chatDoc uploaded;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jobRepository = mock(PipelineJobRepository.class);
+        documentRepository = mock(chatDocRepository.class);
+        documentService = mock(chatDocService.class);
+        queue = new PipelineJobQueue(jobRepository, documentRepository, documentService, Runnable::run,
+            new PipelineMetrics(), 2, "node-a");
+        file = new MockMultipartFile("file", "report.pdf", "application/pdf", new byte[] { 1 });
+
+        uploaded = new chatDoc();
+        uploaded.setId(7L);
+        uploaded.setPipelineStatus("UPLOADED");
+        when(documentService.storeUpload(file)).thenReturn(uploaded);
+        when(jobRepository.save(any(PipelineJob.class))).thenAnswer(invocation -> {
+            PipelineJob job = invocation.getArgument(0);
+            job.setId(3L);
+            return job;
+        });
+    }
+
+    @Test
+    void lostLeaseDuringSynchronousRunReturnsTheStoredDocument() throws Exception {
+        chatDoc takenOver = new chatDoc();
+        takenOver.setId(7L);
+        takenOver.setPipelineStatus("ALT_DONE");
+        when(documentRepository.findById(7L)).thenReturn(Optional.of(takenOver));
+        when(jobRepository.heartbeat(eq(3L), eq("node-a"), any(), any())).thenReturn(0);
+        when(documentService.runPipeline(eq(uploaded), eq(true), any())).thenAnswer(invocation -> {
+            queue.heartbeat(); // another node re-claimed the job
+            assertTrue(((CompletableFuture<?>) invocation.getArgument(2)).isDone());
+            throw new IOException("Pipeline run for document 7 abandoned: ownership lost");
+        });
+
+        assertSame(takenOver, queue.processNow(file));
+        verify(jobRepository, never()).finish(any(), anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void renewedLeaseKeepsTheRunAndFailureIsRecorded() throws Exception {
+        when(jobRepository.heartbeat(eq(3L), eq("node-a"), any(), any())).thenReturn(1);
+        when(jobRepository.finish(eq(3L), eq("node-a"), eq("FAILED"), any(), any())).thenReturn(1);
+        when(documentService.runPipeline(eq(uploaded), eq(true), any())).thenAnswer(invocation -> {
+            queue.heartbeat();
+            assertFalse(((CompletableFuture<?>) invocation.getArgument(2)).isDone());
+            throw new IOException("Failed to process PDF: boom");
+        });
+
+        assertThrows(IOException.class, () -> queue.processNow(file));
+        verify(jobRepository).finish(eq(3L), eq("node-a"), eq("FAILED"), any(), any());
+    }
+}
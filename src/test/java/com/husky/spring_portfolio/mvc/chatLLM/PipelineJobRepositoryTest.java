@@ -0,0 +1,74 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:sqlite:file:pipeline-job-test?mode=memory&cache=shared",
+    "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+class PipelineJobRepositoryTest {
+
+    @Autowired
+    private PipelineJobRepository jobRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private PipelineJob running(String owner, LocalDateTime leaseExpiresAt) {
+        PipelineJob job = new PipelineJob(1L);
+        job.setStatus("RUNNING");
+        job.setOwner(owner);
+        job.setAttempts(1);
+        job.setLeaseExpiresAt(leaseExpiresAt);
+        return jobRepository.saveAndFlush(job);
+    }
+
+    @Test
+    void claimOnExpiredLeaseSucceeds() {
+        LocalDateTime now = LocalDateTime.now();
+        PipelineJob job = running("node-a", now.minusSeconds(1));
+
+        assertTrue(jobRepository.findClaimableIds(now, PageRequest.of(0, 10)).contains(job.getId()));
+        assertEquals(1, jobRepository.claim(job.getId(), "node-b", now.plusMinutes(5), now));
+        entityManager.clear();
+
+        PipelineJob claimed = jobRepository.findById(job.getId()).orElseThrow();
+        assertEquals("node-b", claimed.getOwner());
+        assertEquals(2, claimed.getAttempts());
+    }
+
+    @Test
+    void claimOnLiveLeaseFails() {
+        LocalDateTime now = LocalDateTime.now();
+        PipelineJob job = running("node-a", now.plusMinutes(5));
+
+        assertTrue(jobRepository.findClaimableIds(now, PageRequest.of(0, 10)).isEmpty());
+        assertEquals(0, jobRepository.claim(job.getId(), "node-b", now.plusMinutes(5), now));
+        entityManager.clear();
+        assertEquals("node-a", jobRepository.findById(job.getId()).orElseThrow().getOwner());
+    }
+
+    @Test
+    void formerOwnerCannotHeartbeatOrFinishAReclaimedJob() {
+        LocalDateTime now = LocalDateTime.now();
+        PipelineJob job = running("node-a", now.minusSeconds(1));
+        jobRepository.claim(job.getId(), "node-b", now.plusMinutes(5), now);
+
+        assertEquals(0, jobRepository.heartbeat(job.getId(), "node-a", now.plusMinutes(5), now));
+        assertEquals(0, jobRepository.finish(job.getId(), "node-a", "DONE", null, now));
+        assertEquals(1, jobRepository.heartbeat(job.getId(), "node-b", now.plusMinutes(10), now));
+    }
+}
@@ -0,0 +1,101 @@
+package com.husky.spring_portfolio.mvc.chatLLM;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class chatDocServiceTest {
+
+    private static ImageInfo image(int page, int index, byte[] bytes) {
+        return new ImageInfo(page, "img_" + page + "_" + index, bytes, "PNG", 0, 0, 10, 10);
+    }
+
+    @Test
+    void placeholderModeKeepsImageBytesOutOfRawHtml() {
+        ImageInfo first = image(1, 0, new byte[] { 1, 2, 3 });
+
+        String placeholders = chatDocService.convertToRawHtml("Heading", List.of(first), true);
+        String inline = chatDocService.convertToRawHtml("Heading", List.of(first), false);
+
+        assertTrue(placeholders.contains("<img src=\"img_1_0\" />"), placeholders);
+        assertFalse(placeholders.contains("base64"), placeholders);
+        assertTrue(inline.contains("<img src=\"" + first.toDataUrl() + "\" />"), inline);
+    }
+
+    @Test
+    void placeholdersAreSwappedBackForDataUrls() {
+        ImageInfo first = image(1, 0, new byte[] { 1, 2, 3 });
+        ImageInfo second = image(2, 1, new byte[] { 4, 5, 6 });
+        String html = chatDocService.convertToRawHtml("Heading", List.of(first, second), true);
+
+        String rehydrated = chatDocService.rehydrateImageSources(html, List.of(first, second));
+
+        assertEquals(chatDocService.convertToRawHtml("Heading", List.of(first, second), false), rehydrated);
+    }
+
+    @Test
+    void rewrittenAttributesAreStillRehydrated() {
+        ImageInfo first = image(1, 0, new byte[] { 1, 2, 3 });
+        String html = "<img alt=\"Chart\" src = 'img_1_0'>";
+
+        assertEquals("<img alt=\"Chart\" src = '" + first.toDataUrl() + "'>",
+            chatDocService.rehydrateImageSources(html, List.of(first)));
+    }
+
+    @Test
+    void changedIdIsLeftAsIsAndDroppedImageStaysMissing() {
+        ImageInfo first = image(1, 0, new byte[] { 1, 2, 3 });
+        ImageInfo second = image(2, 1, new byte[] { 4, 5, 6 });
+        ImageInfo third = image(3, 0, new byte[] { 7, 8, 9 });
+        // The model renamed img_2_1 to img_2_7 and dropped img_3_0.
+        String html = "<img src=\"img_1_0\" alt=\"a\">\n<img src=\"img_2_7\" alt=\"b\">\n";
+
+        String rehydrated = chatDocService.rehydrateImageSources(html, List.of(first, second, third));
+
+        assertEquals("<img src=\"" + first.toDataUrl() + "\" alt=\"a\">\n<img src=\"img_2_7\" alt=\"b\">\n", rehydrated);
+        assertFalse(rehydrated.contains(second.toDataUrl()));
+        assertFalse(rehydrated.contains(third.toDataUrl()));
+    }
+
+    @Test
+    void lostOwnershipStopsTheRunBeforeItSaves(@TempDir Path dir) throws Exception {
+        Path pdf = dir.resolve("report.pdf");
+        try (PDDocument document = new PDDocument()) {
+            document.addPage(new PDPage());
+            document.save(pdf.toFile());
+        }
+        chatDocRepository documentRepository = mock(chatDocRepository.class);
+        AlteredDocStreamRegistry streams = mock(AlteredDocStreamRegistry.class);
+        chatDocService service = new chatDocService(documentRepository, ForkJoinPool.commonPool(), Runnable::run,
+            new PipelineMetrics(), mock(LlmClient.class), mock(LlmCircuitBreaker.class),
+            mock(LlmResponseCache.class), streams, 1);
+        ReflectionTestUtils.setField(service, "pdfSpillThresholdBytes", -1L);
+        chatDoc document = new chatDoc();
+        document.setId(5L);
+        document.setOriginalPdfPath(pdf.toString());
+
+        IOException e = assertThrows(IOException.class,
+            () -> service.runPipeline(document, true, CompletableFuture.completedFuture(null)));
+
+        assertTrue(e.getMessage().contains("ownership lost"), e.getMessage());
+        verify(documentRepository, never()).save(any());
+        verify(streams).handOff(5L);
+    }
+}